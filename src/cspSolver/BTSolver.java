@@ -1,517 +1,994 @@
-package cspSolver;
-import java.util.*;
-
-import sudoku.Converter;
-import sudoku.SudokuFile;
-/**
- * Backtracking solver. 
- *
- */
-public class BTSolver implements Runnable{
-
-	//===============================================================================
-	// Properties
-	//===============================================================================
-
-	private ConstraintNetwork network;
-	private static Trail trail = Trail.getTrail();
-	private boolean hasSolution = false;
-	private SudokuFile sudokuGrid;
-
-	private int numAssignments;
-	private int numBacktracks;
-	private long startTime;
-	private long endTime;
-	
-	public enum VariableSelectionHeuristic 		{ None, MinimumRemainingValue, Degree };
-	public enum ValueSelectionHeuristic 		{ None, LeastConstrainingValue };
-	public enum ConsistencyCheck				{ None, ForwardChecking, ArcConsistency };
-	public enum HeuristicCheck					{ None, NakedPairs, NakedTriples, Both}
-	
-	private VariableSelectionHeuristic varHeuristics;
-	private ValueSelectionHeuristic valHeuristics;
-	private ConsistencyCheck cChecks;
-	private HeuristicCheck heurCheck;
-	//===============================================================================
-	// Constructors
-	//===============================================================================
-
-	public BTSolver(SudokuFile sf)
-	{
-		this.network = Converter.SudokuFileToConstraintNetwork(sf);
-		this.sudokuGrid = sf;
-		numAssignments = 0;
-		numBacktracks = 0;
-	}
-
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-	
-	public void setVariableSelectionHeuristic(VariableSelectionHeuristic vsh)
-	{
-		this.varHeuristics = vsh;
-	}
-	
-	public void setValueSelectionHeuristic(ValueSelectionHeuristic vsh)
-	{
-		this.valHeuristics = vsh;
-	}
-	
-	public void setConsistencyChecks(ConsistencyCheck cc)
-	{
-		this.cChecks = cc;
-	}
-
-	public void setHeuristicCheck(HeuristicCheck check)
-	{
-		this.heurCheck = check;
-	}
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-
-	/** 
-	 * @return true if a solution has been found, false otherwise. 
-	 */
-	public boolean hasSolution()
-	{
-		return hasSolution;
-	}
-
-	/**
-	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
-	 */
-	public SudokuFile getSolution()
-	{
-		return sudokuGrid;
-	}
-
-	public void printSolverStats()
-	{
-		System.out.println("Time taken:" + (endTime-startTime) + " ms");
-		System.out.println("Number of assignments: " + numAssignments);
-		System.out.println("Number of backtracks: " + numBacktracks);
-	}
-
-	/**
-	 * 
-	 * @return time required for the solver to attain in seconds
-	 */
-	public long getTimeTaken()
-	{
-		return endTime-startTime;
-	}
-
-	public int getNumAssignments()
-	{
-		return numAssignments;
-	}
-
-	public int getNumBacktracks()
-	{
-		return numBacktracks;
-	}
-
-	public ConstraintNetwork getNetwork()
-	{
-		return network;
-	}
-
-	//===============================================================================
-	// Helper Methods
-	//===============================================================================
-
-	/**
-	 * Checks whether the changes from the last time this method was called are consistent. 
-	 * @return true if consistent, false otherwise
-	 */
-	private boolean checkConsistency()
-	{
-		boolean isConsistent = false;
-		switch(cChecks)
-		{
-		case None: 				isConsistent = assignmentsCheck();
-		break;
-		case ForwardChecking: 	isConsistent = forwardChecking();
-		break;
-		case ArcConsistency: 	isConsistent = arcConsistency();
-		break;
-		default: 				isConsistent = assignmentsCheck();
-		break;
-		}
-		return isConsistent;
-	}
-
-	private boolean checkHeuristic()
-	{
-		if(heurCheck == HeuristicCheck.NakedPairs)
-			return nakedPairs();
-		if(heurCheck == HeuristicCheck.NakedTriples)
-			return nakedTriples();
-		if(heurCheck == HeuristicCheck.Both)
-			return nakedPairs() && nakedTriples();
-		return true;
-	}
-	
-	/**
-	 * default consistency check. Ensures no two variables are assigned to the same value.
-	 * @return true if consistent, false otherwise. 
-	 */
-	private boolean assignmentsCheck()
-	{
-		for(Variable v : network.getVariables())
-		{
-			if(v.isAssigned())
-			{
-				for(Variable vOther : network.getNeighborsOfVariable(v))
-				{
-					if (v.getAssignment() == vOther.getAssignment())
-					{
-						return false;
-					}
-				}
-			}
-		}
-		return true;
-	}
-
-
-	private boolean forwardChecking()
-	{
-		for (Variable v : network.getVariables())
-		{
-			if (v.isAssigned())
-			{
-				for (Variable vOther : network.getNeighborsOfVariable(v))
-				{
-					if (!vOther.isAssigned())
-						vOther.removeValueFromDomain(v.getAssignment());
-				}
-			}
-		}
-		return network.isConsistent();
-	}
-	
-	/**
-	 *
-	 */
-	private boolean arcConsistency()
-	{
-		boolean stop = false;
-		while(!stop)
-		{
-			stop = true;
-			for(Constraint constraintGroup : network.getConstraints())
-			{
-				for(Variable var : constraintGroup.vars)
-				{
-					if(!var.isAssigned())
-						continue;
-
-					for(Variable otherVar : constraintGroup.vars)
-					{
-						if(var.equals(otherVar))
-							continue;
-						if(otherVar.size() != 1)
-						{
-							otherVar.removeValueFromDomain(var.getAssignment());
-							if(otherVar.size() == 1) //We caused a variable to get an assignment so we need to keep working
-								stop = false;
-						}
-						else if(otherVar.getAssignment().equals(var.getAssignment())) //Not consistent so we need to backtrack
-							return false;
-					}
-				}
-			}
-		}
-		return network.isConsistent();
-	}
-
-	private boolean nakedPairs()
-	{
-		for(Constraint constraint : network.getConstraints())
-			constraint.propagateNakedPairs();
-		return network.isConsistent();
-	}
-
-	private boolean nakedTriples()
-	{
-		for(Constraint constraint : network.getConstraints())
-			constraint.propagateNakedTriples();
-
-		return network.isConsistent();
-	}
-
-	/**
-	 * Selects the next variable to check.
-	 * @return next variable to check. null if there are no more variables to check. 
-	 */
-	private Variable selectNextVariable()
-	{
-		Variable next = null;
-		switch(varHeuristics)
-		{
-		case None: 					next = getfirstUnassignedVariable();
-		break;
-		case MinimumRemainingValue: next = getMRV();
-		break;
-		case Degree:				next = getDegree();
-		break;
-		default:					next = getfirstUnassignedVariable();
-		break;
-		}
-		return next;
-	}
-	
-	/**
-	 * default next variable selection heuristic. Selects the first unassigned variable. 
-	 * @return first unassigned variable. null if no variables are unassigned. 
-	 */
-	private Variable getfirstUnassignedVariable()
-	{
-		for(Variable v : network.getVariables())
-		{
-			if(!v.isAssigned())
-			{
-				return v;
-			}
-		}
-		return null;
-	}
-
-	/**
-	 * 
-	 * @return variable with minimum remaining values that isn't assigned, null if all variables are assigned. 
-	 */
-	private Variable getMRV()
-	{
-		Variable min = null;
-		for(Variable v : network.getVariables())
-		{
-			if(!v.isAssigned())
-			{
-				if(min == null || v.getDomain().getValues().size() < min.getDomain().getValues().size())
-					min = v;
-			}
-		}
-		return min;
-	}
-	
-	/**
-	 * @return variable constrained by the most unassigned variables, null if all variables are assigned.
-	 */
-	private Variable getDegree()
-	{
-		int constraints = 0;
-		Variable mostConstrained = null;
-
-		//We are selecting a variable so go through all the variables
-		for(Variable v : network.getVariables())
-		{
-			//We are only looking for unassigned variables
-			if(!v.isAssigned())
-			{
-				//Store all the unassigned variables that are constrained with Variable v
-				int constrainedCount = 0;
-				List<Variable> neighbors = network.getNeighborsOfVariable(v);
-
-				for(Variable v2 : neighbors)
-					if(!v2.isAssigned())
-						constrainedCount++;
-
-				//Now the Set of vars contains all the DISTINCT unassigned constrained variables
-				if(constrainedCount >= constraints)
-				{
-					constraints = constrainedCount;
-					mostConstrained = v;
-				}
-			}
-		}
-		return mostConstrained;
-	}
-	
-	/**
-	 * Value Selection Heuristics. Orders the values in the domain of the variable 
-	 * passed as a parameter and returns them as a list.
-	 * @return List of values in the domain of a variable in a specified order. 
-	 */
-	public List<Integer> getNextValues(Variable v)
-	{
-		List<Integer> orderedValues;
-		switch(valHeuristics)
-		{
-		case None: 						orderedValues = getValuesInOrder(v);
-		break;
-		case LeastConstrainingValue: 	orderedValues = getValuesLCVOrder(v);
-		break;
-		default:						orderedValues = getValuesInOrder(v);
-		break;
-		}
-		return orderedValues;
-	}
-	
-	/**
-	 * Default value ordering. 
-	 * @param v Variable whose values need to be ordered
-	 * @return values ordered by lowest to highest. 
-	 */
-	public List<Integer> getValuesInOrder(Variable v)
-	{
-		List<Integer> values = v.getDomain().getValues();
-		
-		Comparator<Integer> valueComparator = new Comparator<Integer>(){
-
-			@Override
-			public int compare(Integer i1, Integer i2) {
-				return i1.compareTo(i2);
-			}
-		};
-		Collections.sort(values, valueComparator);
-		return values;
-	}
-	
-	/**
-	 *
-	 */
-	public List<Integer> getValuesLCVOrder(final Variable v)
-	{
-		ArrayList<Integer> domain = new ArrayList<>(v.getDomain().getValues());
-		final HashMap<Integer,Integer> cache = new HashMap<>();
-		Collections.sort(domain, new Comparator<Integer>()
-		{
-			@Override
-			public int compare(Integer val1, Integer val2)
-			{
-				int val1Conflicts = Integer.MAX_VALUE;
-				int val2Conflicts = Integer.MAX_VALUE;
-
-				if(cache.containsKey(val1))
-					val1Conflicts = cache.get(val1);
-				else
-				{
-					val1Conflicts = calculateConstrainingFactor(v,val1);
-					cache.put(val1,val1Conflicts);
-				}
-
-				if(cache.containsKey(val2))
-					val2Conflicts = cache.get(val2);
-				else
-				{
-					val2Conflicts = calculateConstrainingFactor(v,val2);
-					cache.put(val2,val2Conflicts);
-				}
-				return Integer.compare(val1Conflicts,val2Conflicts);
-			}
-		});
-		return domain;
-	}
-
-	private int calculateConstrainingFactor(Variable v, int value)
-	{
-		int constrainingFactor = 0;
-		List<Variable> neighbors = network.getNeighborsOfVariable(v);
-		for(Variable v2 : neighbors)
-			if(!v2.isAssigned() && v2.getDomain().contains(value))
-				constrainingFactor++;
-		return constrainingFactor;
-	}
-	/**
-	 * Called when solver finds a solution
-	 */
-	private void success()
-	{
-		hasSolution = true;
-		sudokuGrid = Converter.ConstraintNetworkToSudokuFile(network, sudokuGrid.getN(), sudokuGrid.getP(), sudokuGrid.getQ());
-	}
-
-	//===============================================================================
-	// Solver
-	//===============================================================================
-
-	/**
-	 * Method to start the solver
-	 */
-	public void solve()
-	{
-		startTime = System.currentTimeMillis();
-		try {
-			solve(0);
-		}catch (VariableSelectionException e)
-		{
-			System.out.println("error with variable selection heuristic.");
-		}
-		endTime = System.currentTimeMillis();
-		Trail.clearTrail();
-	}
-
-	/**
-	 * Solver
-	 * @param level How deep the solver is in its recursion. 
-	 * @throws VariableSelectionException 
-	 */
-
-	private void solve(int level) throws VariableSelectionException
-	{
-		if(!Thread.currentThread().isInterrupted())
-
-		{//Check if assignment is completed
-			if(hasSolution)
-			{
-				return;
-			}
-
-			//Select unassigned variable
-			Variable v = selectNextVariable();		
-
-			//check if the assignment is complete
-			if(v == null)
-			{
-				for(Variable var : network.getVariables())
-				{
-					if(!var.isAssigned())
-					{
-						throw new VariableSelectionException("Something happened with the variable selection heuristic");
-					}
-				}
-				success();
-				return;
-			}
-
-			//loop through the values of the variable being checked LCV
-
-			
-			for(Integer i : getNextValues(v))
-			{
-				trail.placeBreadCrumb();
-
-				//check a value
-				v.updateDomain(new Domain(i));
-				numAssignments++;
-
-				//move to the next assignment
-				if(checkConsistency() && checkHeuristic())
-				{		
-					solve(level + 1);
-				}
-
-				//if this assignment failed at any stage, backtrack
-				if(!hasSolution)
-				{
-					trail.undo();
-					numBacktracks++;
-				}
-				
-				else
-				{
-					return;
-				}
-			}	
-		}	
-	}
-
-	@Override
-	public void run() {
-		solve();
-	}
-}
+package cspSolver;
+import java.util.*;
+
+import jdk.jfr.EventType;
+import sudoku.Converter;
+import sudoku.SudokuFile;
+/**
+ * Backtracking solver. 
+ *
+ */
+public class BTSolver implements Solver{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private ConstraintNetwork network;
+	private Trail trail;
+	private boolean hasSolution = false;
+	private SudokuFile sudokuGrid;
+	private long solutionLimit = 1;		//solutions to find before stopping, 0 for all of them
+	private long numSolutions;
+
+	private int numAssignments;
+	private int numBacktracks;
+	private long startTime;		//System.nanoTime()
+	private long endTime;
+	private volatile boolean cancelled;
+	private SolverListener listener;
+
+	//limits of the current solve, read from its SolveBudget when it starts
+	private SolveBudget budget = new SolveBudget();
+	private boolean timed;
+	private long timeAllowed;
+	private long maxAssignments;
+	private SolveResult.Status stopStatus;		//why the search stopped early, null while it may go on
+
+	//Flight Recorder events, whether each one is recorded is read when a solve starts
+	private static final EventType BACKTRACK_EVENT = EventType.getEventType(BacktrackEvent.class);
+	private static final EventType PROPAGATION_EVENT = EventType.getEventType(PropagationEvent.class);
+	private boolean backtrackEvents;
+	private boolean propagationEvents;
+	private int depth;			//level of the node being checked, for the events
+
+	//decision stack of search(), one frame per level
+	private Variable[] stackVariables;
+	private int[][] stackValues;		//values of each frame's variable, in the order they are tried
+	private int[] stackNumValues;
+	private int[] stackCursors;			//index in stackValues of the next value to try
+	private int[] stackAssignments;		//numAssignments when the current value was assigned
+	private BacktrackEvent[] stackEvents;
+	
+	public enum VariableSelectionHeuristic 		{ None, MinimumRemainingValue, Degree };
+	public enum ValueSelectionHeuristic 		{ None, LeastConstrainingValue };
+	public enum ConsistencyCheck				{ None, ForwardChecking, ArcConsistency, AC3 };
+	public enum HeuristicCheck					{ None, NakedPairs, NakedTriples, Both, HiddenSingles, HiddenPairs, HiddenTriples, All}
+	
+	private VariableSelectionHeuristic varHeuristics;
+	private ValueSelectionHeuristic valHeuristics;
+	private ConsistencyCheck cChecks;
+	private HeuristicCheck heurCheck;
+	
+	//constraint worklist for AC3, a ring buffer holding each constraint at most once
+	private int[] constraintQueue;
+	private boolean[] queued;
+	private int queueHead;
+	private int queueSize;
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	public BTSolver(SudokuFile sf)
+	{
+		this.network = Converter.SudokuFileToConstraintNetwork(sf);
+		this.trail = network.getTrail();
+		this.sudokuGrid = sf;
+		numAssignments = 0;
+		numBacktracks = 0;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+	
+	public void setVariableSelectionHeuristic(VariableSelectionHeuristic vsh)
+	{
+		this.varHeuristics = vsh;
+	}
+	
+	public void setValueSelectionHeuristic(ValueSelectionHeuristic vsh)
+	{
+		this.valHeuristics = vsh;
+	}
+	
+	public void setConsistencyChecks(ConsistencyCheck cc)
+	{
+		this.cChecks = cc;
+	}
+
+	public void setHeuristicCheck(HeuristicCheck check)
+	{
+		this.heurCheck = check;
+	}
+
+	/**
+	 * Reports the events of the search to <tt>listener</tt>, or to no one if it is null.
+	 * Phases are only timed while a listener is attached.
+	 */
+	public void setSolverListener(SolverListener listener)
+	{
+		this.listener = listener;
+	}
+
+	/**
+	 * Stops a running solve at the next node it visits.
+	 */
+	@Override
+	public void cancel()
+	{
+		cancelled = true;
+	}
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/** 
+	 * @return true if a solution has been found, false otherwise. 
+	 */
+	public boolean hasSolution()
+	{
+		return hasSolution;
+	}
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	public SudokuFile getSolution()
+	{
+		return sudokuGrid;
+	}
+
+	public void printSolverStats()
+	{
+		System.out.println("Time taken:" + getTimeTaken() + " ms");
+		System.out.println("Number of assignments: " + numAssignments);
+		System.out.println("Number of backtracks: " + numBacktracks);
+	}
+
+	/**
+	 * 
+	 * @return time required for the solver to attain in milliseconds
+	 */
+	public long getTimeTaken()
+	{
+		return (endTime-startTime) / 1000000;
+	}
+
+	/**
+	 * @return time taken by the solver in nanoseconds
+	 */
+	public long getTimeTakenNanos()
+	{
+		return endTime-startTime;
+	}
+
+	public int getNumAssignments()
+	{
+		return numAssignments;
+	}
+
+	public int getNumBacktracks()
+	{
+		return numBacktracks;
+	}
+
+	/**
+	 * @return number of solutions found so far
+	 */
+	public long getNumSolutions()
+	{
+		return numSolutions;
+	}
+
+	public ConstraintNetwork getNetwork()
+	{
+		return network;
+	}
+
+	/**
+	 * @return the outcome and statistics of the last solve
+	 */
+	public SolveResult getResult()
+	{
+		SolveResult.Status status = stopStatus;
+		if(status == null)
+		{
+			status = numSolutions > 0 ? SolveResult.Status.Solved : SolveResult.Status.NoSolution;
+		}
+		return new SolveResult(status, numSolutions > 0, sudokuGrid, endTime - startTime, numAssignments, numBacktracks);
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	/**
+	 * Checks whether the changes from the last time this method was called are consistent. 
+	 * @return true if consistent, false otherwise
+	 */
+	private boolean checkConsistency()
+	{
+		long phaseStart = startPhase();
+		PropagationEvent event = propagationEvents ? new PropagationEvent() : null;
+		if(event != null)
+		{
+			event.begin();
+		}
+		boolean isConsistent = false;
+		switch(cChecks)
+		{
+		case None: 				isConsistent = assignmentsCheck();
+		break;
+		case ForwardChecking: 	isConsistent = forwardChecking();
+		break;
+		case ArcConsistency: 	isConsistent = arcConsistency();
+		break;
+		case AC3:				isConsistent = arcConsistencyQueue();
+		break;
+		default: 				isConsistent = assignmentsCheck();
+		break;
+		}
+		endPhase(SolverListener.Phase.ConsistencyCheck, phaseStart);
+		if(event != null)
+		{
+			commitPropagation(event, "ConsistencyCheck", cChecks.toString(), isConsistent);
+		}
+		return isConsistent;
+	}
+
+	private boolean checkHeuristic()
+	{
+		long phaseStart = startPhase();
+		PropagationEvent event = propagationEvents ? new PropagationEvent() : null;
+		if(event != null)
+		{
+			event.begin();
+		}
+		boolean isConsistent = true;
+		if(heurCheck == HeuristicCheck.NakedPairs)
+			isConsistent = nakedPairs();
+		else if(heurCheck == HeuristicCheck.NakedTriples)
+			isConsistent = nakedTriples();
+		else if(heurCheck == HeuristicCheck.Both)
+			isConsistent = nakedPairs() && nakedTriples();
+		else if(heurCheck == HeuristicCheck.HiddenSingles)
+			isConsistent = hiddenSingles();
+		else if(heurCheck == HeuristicCheck.HiddenPairs)
+			isConsistent = hiddenPairs();
+		else if(heurCheck == HeuristicCheck.HiddenTriples)
+			isConsistent = hiddenTriples();
+		else if(heurCheck == HeuristicCheck.All)
+			isConsistent = nakedPairs() && nakedTriples() && hiddenSingles() && hiddenPairs() && hiddenTriples();
+		endPhase(SolverListener.Phase.HeuristicCheck, phaseStart);
+		if(event != null)
+		{
+			commitPropagation(event, "HeuristicCheck", String.valueOf(heurCheck), isConsistent);
+		}
+		return isConsistent;
+	}
+
+	private void commitPropagation(PropagationEvent event, String check, String mode, boolean consistent)
+	{
+		event.end();
+		if(event.shouldCommit())
+		{
+			event.check = check;
+			event.mode = mode;
+			event.depth = depth;
+			event.consistent = consistent;
+			event.commit();
+		}
+	}
+
+	/**
+	 * @return the time a phase starts at, 0 without reading the clock if no listener is attached
+	 */
+	private long startPhase()
+	{
+		return listener == null ? 0 : System.nanoTime();
+	}
+
+	private void endPhase(SolverListener.Phase phase, long phaseStart)
+	{
+		if(listener != null)
+		{
+			listener.phaseTimed(phase, System.nanoTime() - phaseStart);
+		}
+	}
+	
+	/**
+	 * default consistency check. Ensures no two variables are assigned to the same value.
+	 * @return true if consistent, false otherwise. 
+	 */
+	private boolean assignmentsCheck()
+	{
+		for(Variable v : network.getVariables())
+		{
+			if(v.isAssigned())
+			{
+				for(Variable vOther : network.getNeighborsOfVariable(v))
+				{
+					if (v.getAssignment() == vOther.getAssignment())
+					{
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Forward checking from the variables assigned since the last check, normally just 
+	 * the one assigned by the solver: its value is removed from its neighbors. A neighbor
+	 * left with a single value counts as assigned, so it is checked the same way.
+	 * Stops as soon as a neighbor's domain is wiped out or two neighbors share a value,
+	 * so the cost grows with the degree of the assigned variables rather than the board.
+	 * @return true if consistent, false otherwise.
+	 */
+	private boolean forwardChecking()
+	{
+		for(int i = network.pollNewAssignment(); i != -1; i = network.pollNewAssignment())
+		{
+			Variable v = network.getVariable(i);
+			if(!v.isAssigned())
+				continue; //unassigned again by an undo
+
+			int value = v.getDomain().first();
+			for(int j : network.getNeighborIndices(i))
+			{
+				Variable vOther = network.getVariable(j);
+				if(vOther.isAssigned())
+				{
+					if(vOther.getDomain().first() == value)
+					{
+						network.clearNewAssignments();
+						return false;
+					}
+					continue;
+				}
+				vOther.removeValueFromDomain(value);
+				if(vOther.getDomain().isEmpty())
+				{
+					network.clearNewAssignments();
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 *
+	 */
+	private boolean arcConsistency()
+	{
+		boolean stop = false;
+		while(!stop)
+		{
+			stop = true;
+			for(Constraint constraintGroup : network.getConstraints())
+			{
+				for(Variable var : constraintGroup.vars)
+				{
+					if(!var.isAssigned())
+						continue;
+
+					for(Variable otherVar : constraintGroup.vars)
+					{
+						if(var.equals(otherVar))
+							continue;
+						if(otherVar.size() != 1)
+						{
+							otherVar.removeValueFromDomain(var.getAssignment());
+							if(otherVar.size() == 1) //We caused a variable to get an assignment so we need to keep working
+								stop = false;
+						}
+						else if(otherVar.getAssignment().equals(var.getAssignment())) //Not consistent so we need to backtrack
+							return false;
+					}
+				}
+			}
+		}
+		return network.isConsistent();
+	}
+
+	/**
+	 * Queue-based arc consistency. Only the constraints containing a variable that 
+	 * became assigned since the last check are revised, and a constraint is queued again
+	 * whenever one of its variables becomes assigned during propagation. A NotEquals arc 
+	 * can only prune once the other side is down to one value, so narrower domains that 
+	 * are still larger than one do not requeue anything. Fails as soon as a domain empties.
+	 * @return true if consistent, false otherwise.
+	 */
+	private boolean arcConsistencyQueue()
+	{
+		if(constraintQueue == null)
+		{
+			constraintQueue = new int[network.getConstraints().size()];
+			queued = new boolean[constraintQueue.length];
+		}
+		queueNewAssignments();
+		while(queueSize > 0)
+		{
+			int c = constraintQueue[queueHead];
+			queueHead = (queueHead + 1) % constraintQueue.length;
+			queueSize--;
+			queued[c] = false;
+			if(!revise(network.getConstraints().get(c)))
+			{
+				while(queueSize > 0)
+				{
+					queued[constraintQueue[queueHead]] = false;
+					queueHead = (queueHead + 1) % constraintQueue.length;
+					queueSize--;
+				}
+				network.clearNewAssignments();
+				return false;
+			}
+			queueNewAssignments();
+		}
+		return true;
+	}
+
+	/**
+	 * Queues every constraint containing a variable assigned since the last call.
+	 */
+	private void queueNewAssignments()
+	{
+		for(int v = network.pollNewAssignment(); v != -1; v = network.pollNewAssignment())
+		{
+			for(int c : network.getConstraintIndices(v))
+			{
+				if(!queued[c])
+				{
+					queued[c] = true;
+					constraintQueue[(queueHead + queueSize) % constraintQueue.length] = c;
+					queueSize++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes the value of every assigned variable in the constraint from the others.
+	 * @return false if two variables share a value or a domain was emptied
+	 */
+	private boolean revise(Constraint constraint)
+	{
+		for(Variable var : constraint.vars)
+		{
+			if(!var.isAssigned())
+				continue;
+
+			int value = var.getDomain().first();
+			for(Variable otherVar : constraint.vars)
+			{
+				if(otherVar == var)
+					continue;
+				if(otherVar.isAssigned())
+				{
+					if(otherVar.getDomain().first() == value)
+						return false;
+					continue;
+				}
+				otherVar.removeValueFromDomain(value);
+				if(otherVar.getDomain().isEmpty())
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the consistency check propagates from the variables assigned since its last call
+	 */
+	private boolean propagatesNewAssignments()
+	{
+		return cChecks == ConsistencyCheck.ForwardChecking || cChecks == ConsistencyCheck.AC3;
+	}
+
+	private boolean nakedPairs()
+	{
+		for(Constraint constraint : network.getConstraints())
+			constraint.propagateNakedPairs();
+		return network.isConsistent();
+	}
+
+	private boolean nakedTriples()
+	{
+		for(Constraint constraint : network.getConstraints())
+			constraint.propagateNakedTriples();
+
+		return network.isConsistent();
+	}
+
+	private boolean hiddenSingles()
+	{
+		for(Constraint constraint : network.getConstraints())
+			if(!constraint.propagateHiddenSingles())
+				return false;
+		return network.isConsistent();
+	}
+
+	private boolean hiddenPairs()
+	{
+		for(Constraint constraint : network.getConstraints())
+			if(!constraint.propagateHiddenPairs())
+				return false;
+		return network.isConsistent();
+	}
+
+	private boolean hiddenTriples()
+	{
+		for(Constraint constraint : network.getConstraints())
+			if(!constraint.propagateHiddenTriples())
+				return false;
+		return network.isConsistent();
+	}
+
+	/**
+	 * Selects the next variable to check.
+	 * @return next variable to check. null if there are no more variables to check. 
+	 */
+	private Variable selectNextVariable()
+	{
+		Variable next = null;
+		switch(varHeuristics)
+		{
+		case None: 					next = getfirstUnassignedVariable();
+		break;
+		case MinimumRemainingValue: next = getMRV();
+		break;
+		case Degree:				next = getDegree();
+		break;
+		default:					next = getfirstUnassignedVariable();
+		break;
+		}
+		return next;
+	}
+	
+	/**
+	 * default next variable selection heuristic. Selects the first unassigned variable. 
+	 * @return first unassigned variable. null if no variables are unassigned. 
+	 */
+	private Variable getfirstUnassignedVariable()
+	{
+		for(Variable v : network.getVariables())
+		{
+			if(!v.isAssigned())
+			{
+				return v;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Served from the network's domain size buckets, so no variables are scanned.
+	 * @return variable with minimum remaining values that isn't assigned, null if all variables are assigned. 
+	 */
+	private Variable getMRV()
+	{
+		return network.getSmallestUnassignedVariable();
+	}
+	
+	/**
+	 * @return variable constrained by the most unassigned variables, null if all variables are assigned.
+	 */
+	private Variable getDegree()
+	{
+		int constraints = 0;
+		Variable mostConstrained = null;
+
+		//We are selecting a variable so go through all the variables
+		for(Variable v : network.getVariables())
+		{
+			//We are only looking for unassigned variables
+			if(!v.isAssigned())
+			{
+				//Store all the unassigned variables that are constrained with Variable v
+				int constrainedCount = 0;
+				List<Variable> neighbors = network.getNeighborsOfVariable(v);
+
+				for(Variable v2 : neighbors)
+					if(!v2.isAssigned())
+						constrainedCount++;
+
+				//Now the Set of vars contains all the DISTINCT unassigned constrained variables
+				if(constrainedCount >= constraints)
+				{
+					constraints = constrainedCount;
+					mostConstrained = v;
+				}
+			}
+		}
+		return mostConstrained;
+	}
+	
+	/**
+	 * Value Selection Heuristics. Orders the values in the domain of the variable 
+	 * passed as a parameter and returns them as a list.
+	 * @return List of values in the domain of a variable in a specified order. 
+	 */
+	public List<Integer> getNextValues(Variable v)
+	{
+		List<Integer> orderedValues;
+		switch(valHeuristics)
+		{
+		case None: 						orderedValues = getValuesInOrder(v);
+		break;
+		case LeastConstrainingValue: 	orderedValues = getValuesLCVOrder(v);
+		break;
+		default:						orderedValues = getValuesInOrder(v);
+		break;
+		}
+		return orderedValues;
+	}
+	
+	/**
+	 * Orders the values of a variable like getNextValues(), into an array.
+	 * @param values array to fill, at least as long as the domain of <tt>v</tt>
+	 * @return number of values
+	 */
+	private int getNextValues(Variable v, int[] values)
+	{
+		int numValues = 0;
+		if(valHeuristics == ValueSelectionHeuristic.LeastConstrainingValue)
+		{
+			for(int value : getValuesLCVOrder(v))
+			{
+				values[numValues++] = value;
+			}
+		}
+		else
+		{
+			Domain d = v.getDomain();
+			for(int value = d.first(); value != -1; value = d.next(value))
+			{
+				values[numValues++] = value;
+			}
+		}
+		return numValues;
+	}
+
+	/**
+	 * Default value ordering. 
+	 * @param v Variable whose values need to be ordered
+	 * @return values ordered by lowest to highest. 
+	 */
+	public List<Integer> getValuesInOrder(Variable v)
+	{
+		//Domain.getValues() already lists the values from lowest to highest
+		return v.getDomain().getValues();
+	}
+	
+	/**
+	 *
+	 */
+	public List<Integer> getValuesLCVOrder(final Variable v)
+	{
+		ArrayList<Integer> domain = v.getDomain().getValues();
+		final HashMap<Integer,Integer> cache = new HashMap<>();
+		Collections.sort(domain, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer val1, Integer val2)
+			{
+				int val1Conflicts = Integer.MAX_VALUE;
+				int val2Conflicts = Integer.MAX_VALUE;
+
+				if(cache.containsKey(val1))
+					val1Conflicts = cache.get(val1);
+				else
+				{
+					val1Conflicts = calculateConstrainingFactor(v,val1);
+					cache.put(val1,val1Conflicts);
+				}
+
+				if(cache.containsKey(val2))
+					val2Conflicts = cache.get(val2);
+				else
+				{
+					val2Conflicts = calculateConstrainingFactor(v,val2);
+					cache.put(val2,val2Conflicts);
+				}
+				return Integer.compare(val1Conflicts,val2Conflicts);
+			}
+		});
+		return domain;
+	}
+
+	private int calculateConstrainingFactor(Variable v, int value)
+	{
+		int constrainingFactor = 0;
+		List<Variable> neighbors = network.getNeighborsOfVariable(v);
+		for(Variable v2 : neighbors)
+			if(!v2.isAssigned() && v2.getDomain().contains(value))
+				constrainingFactor++;
+		return constrainingFactor;
+	}
+	/**
+	 * Records a solution. The search stops once the solution limit is reached,
+	 * otherwise it backtracks and looks for the next one.
+	 */
+	private void success()
+	{
+		if(numSolutions++ == 0)
+		{
+			sudokuGrid = Converter.ConstraintNetworkToSudokuFile(network, sudokuGrid.getN(), sudokuGrid.getP(), sudokuGrid.getQ());
+		}
+		hasSolution = solutionLimit != 0 && numSolutions >= solutionLimit;
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	/**
+	 * Counts the solutions of the puzzle, stopping as soon as <tt>limit</tt> of them
+	 * have been found. A limit of 2 tells whether the puzzle has a unique solution
+	 * without exploring the rest of the tree once a second one turns up.
+	 * The first solution found is kept and returned by getSolution().
+	 * @param limit most solutions to look for, 0 to count them all
+	 * @return number of solutions found, a lower bound if the search was cancelled
+	 */
+	public long countSolutions(long limit)
+	{
+		solutionLimit = limit;
+		solve();
+		hasSolution = numSolutions > 0;
+		return numSolutions;
+	}
+
+	/**
+	 * Solves the puzzle, stopping early once any limit of <tt>budget</tt> is spent.
+	 * @return why the solve stopped, with its statistics up to then
+	 */
+	public SolveResult solve(SolveBudget budget)
+	{
+		this.budget = budget;
+		solve();
+		return getResult();
+	}
+
+	/**
+	 * Method to start the solver. Searches for the first solution.
+	 */
+	public void solve()
+	{
+		startTime = System.nanoTime();
+		stopStatus = null;
+		timed = budget.isTimed();
+		timeAllowed = budget.getTimeAllowed(startTime);
+		maxAssignments = budget.getMaxAssignments();
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		backtrackEvents = BACKTRACK_EVENT.isEnabled();
+		propagationEvents = PROPAGATION_EVENT.isEnabled();
+		depth = 0;
+		if(listener != null)
+		{
+			listener.solveStarted(this);
+		}
+		try {
+			//propagate the initial values once before searching
+			if(propagatesNewAssignments())
+			{
+				network.trackNewAssignments();
+			}
+			if(!propagatesNewAssignments() || checkConsistency())
+			{
+				search();
+			}
+		}catch (VariableSelectionException e)
+		{
+			System.out.println("error with variable selection heuristic.");
+			stopStatus = SolveResult.Status.Failed;
+		}
+		endTime = System.nanoTime();
+		trail.clear();
+		if(listener != null)
+		{
+			listener.solveFinished(this);
+		}
+		if(event.isEnabled())
+		{
+			event.finish("BTSolver", getConfiguration(), sudokuGrid.getN(), numAssignments, numBacktracks,
+					numSolutions > 0 ? SolveEvent.SOLVED : stopStatus == SolveResult.Status.Cancelled ? SolveEvent.CANCELLED
+							: stopStatus == SolveResult.Status.Failed ? SolveEvent.FAILED
+							: stopStatus != null ? SolveEvent.OUT_OF_BUDGET : SolveEvent.NO_SOLUTION);
+		}
+	}
+
+	/**
+	 * Checks for cancellation and for the limits of the budget. The clock is only
+	 * read when the budget has a time limit.
+	 * @return true once the search must stop
+	 */
+	private boolean mustStop()
+	{
+		if(stopStatus == null)
+		{
+			if(cancelled || Thread.currentThread().isInterrupted())
+				stopStatus = SolveResult.Status.Cancelled;
+			else if(numAssignments >= maxAssignments)
+				stopStatus = SolveResult.Status.OutOfAssignments;
+			else if(timed && System.nanoTime() - startTime >= timeAllowed)
+				stopStatus = SolveResult.Status.TimedOut;
+		}
+		return stopStatus != null;
+	}
+
+	/**
+	 * @return the heuristics and checks of this solver, for the solve event
+	 */
+	private String getConfiguration()
+	{
+		return varHeuristics + "/" + valHeuristics + "/" + cChecks + "/" + heurCheck;
+	}
+
+	/**
+	 * Search driver. Walks the search tree depth first as the recursion over
+	 * levels did, keeping one frame per decision on a stack preallocated to the
+	 * number of variables, so the depth of the search is not limited by the
+	 * thread's stack. A frame holds the variable branched on, its values in the
+	 * order they are tried and a cursor to the next one. The trail's breadcrumbs
+	 * mark where each frame's changes begin: the frame at level l is trying a
+	 * value exactly while l+1 breadcrumbs are placed.
+	 * @throws VariableSelectionException 
+	 */
+	private void search() throws VariableSelectionException
+	{
+		int numVariables = network.getVariables().size();
+		if(stackVariables == null || stackVariables.length <= numVariables)
+		{
+			stackVariables = new Variable[numVariables + 1];
+			stackValues = new int[numVariables + 1][];
+			stackNumValues = new int[numVariables + 1];
+			stackCursors = new int[numVariables + 1];
+			stackAssignments = new int[numVariables + 1];
+			stackEvents = new BacktrackEvent[numVariables + 1];
+		}
+		if(!expand(0))
+		{
+			return;
+		}
+		int level = 0;
+		while(level >= 0)
+		{
+			//every value of this frame has been tried, return to the one above
+			if(stackCursors[level] == stackNumValues[level] || mustStop())
+			{
+				stackVariables[level] = null;
+				level--;
+				if(level >= 0)
+				{
+					backtrack(level);
+				}
+				continue;
+			}
+
+			//check the next value
+			Variable v = stackVariables[level];
+			int value = stackValues[level][stackCursors[level]++];
+			if(backtrackEvents)
+			{
+				stackEvents[level] = new BacktrackEvent();
+				stackEvents[level].begin();
+			}
+			stackAssignments[level] = numAssignments;
+			trail.placeBreadCrumb();
+			v.updateDomain(value);
+			numAssignments++;
+
+			//move to the next assignment
+			depth = level;
+			if(checkConsistency() && checkHeuristic() && expand(level + 1))
+			{
+				level++;
+				continue;
+			}
+
+			//if this assignment failed at any stage, backtrack
+			if(hasSolution)
+			{
+				return;
+			}
+			backtrack(level);
+		}
+	}
+
+	/**
+	 * Visits a node: selects the variable to branch on and pushes its frame, or
+	 * checks and records the solution if every variable is assigned.
+	 * @param level number of decisions above the node
+	 * @return true if a frame was pushed at <tt>level</tt>, false if the node is done with
+	 * @throws VariableSelectionException 
+	 */
+	private boolean expand(int level) throws VariableSelectionException
+	{
+		if(mustStop() || hasSolution)
+		{
+			return false;
+		}
+
+		//Select unassigned variable
+		long phaseStart = startPhase();
+		Variable v = selectNextVariable();
+		endPhase(SolverListener.Phase.VariableSelection, phaseStart);
+
+		//check if the assignment is complete
+		if(v == null)
+		{
+			//values narrowed by the heuristic checks have not been checked yet
+			depth = level;
+			if(!checkConsistency())
+			{
+				return false;
+			}
+
+			for(Variable var : network.getVariables())
+			{
+				if(!var.isAssigned())
+				{
+					throw new VariableSelectionException("Something happened with the variable selection heuristic");
+				}
+			}
+			success();
+			return false;
+		}
+
+		//order the values of the variable into the frame
+		phaseStart = startPhase();
+		if(stackValues[level] == null || stackValues[level].length < v.size())
+		{
+			stackValues[level] = new int[Math.max(v.size(), sudokuGrid.getN())];
+		}
+		stackNumValues[level] = getNextValues(v, stackValues[level]);
+		endPhase(SolverListener.Phase.ValueOrdering, phaseStart);
+		stackVariables[level] = v;
+		stackCursors[level] = 0;
+		if(listener != null)
+		{
+			listener.nodeExpanded(level, stackNumValues[level]);
+		}
+		return true;
+	}
+
+	/**
+	 * Undoes the value the frame at <tt>level</tt> is trying.
+	 */
+	private void backtrack(int level)
+	{
+		long phaseStart = startPhase();
+		trail.undo();
+		numBacktracks++;
+		endPhase(SolverListener.Phase.Undo, phaseStart);
+		if(listener != null)
+		{
+			listener.backtracked(level);
+		}
+		BacktrackEvent event = stackEvents[level];
+		if(event != null)
+		{
+			stackEvents[level] = null;
+			event.end();
+			if(event.shouldCommit())
+			{
+				event.depth = level;
+				event.variable = stackVariables[level].getName();
+				event.value = stackValues[level][stackCursors[level] - 1];
+				event.assignments = numAssignments - stackAssignments[level];
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		solve();
+	}
+}
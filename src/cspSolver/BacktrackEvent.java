@@ -0,0 +1,41 @@
+package cspSolver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning a value tried by BTSolver, from its
+ * assignment to its undo, so it covers the whole subtree searched below it.
+ * Only subtrees longer than the threshold are recorded, which picks out the
+ * expensive dead ends. Disabled by default; enable <tt>cspSolver.Backtrack</tt>
+ * to record it.
+ */
+@Name("cspSolver.Backtrack")
+@Label("Backtrack")
+@Category({"Sudoku", "Solver"})
+@Description("A value whose subtree was searched without success")
+@Enabled(false)
+@Threshold("10 ms")
+@StackTrace(false)
+final class BacktrackEvent extends Event {
+
+	@Label("Depth")
+	@Description("Decisions above the undone one")
+	int depth;
+
+	@Label("Variable")
+	String variable;
+
+	@Label("Value")
+	int value;
+
+	@Label("Assignments")
+	@Description("Assignments made in the subtree")
+	long assignments;
+}
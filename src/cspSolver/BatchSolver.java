@@ -0,0 +1,427 @@
+package cspSolver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import sudoku.SudokuFile;
+
+/**
+ * Solves many puzzles on a fixed pool of worker threads, one solver per puzzle.
+ * Each solve gets a deadline after which its solver is cancelled, so a hard
+ * puzzle only holds its worker until then. Results come back in the order the
+ * puzzles were given, with the solver's stats. A solve that throws gives a
+ * failed result carrying the exception, and the rest of the batch goes on.
+ *
+ * Every puzzle is solved with the factory given to the constructor, unless
+ * the batch is made of Tasks, which each bring their own factory, such as a
+ * sweep that tries different heuristics on the same puzzles.
+ *
+ * A BatchSolver can be reused for any number of batches and must be closed
+ * when no longer needed.
+ */
+public class BatchSolver implements AutoCloseable{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	/**
+	 * Builds a configured solver for one puzzle.
+	 */
+	public interface SolverFactory
+	{
+		Solver create(SudokuFile sf);
+	}
+
+	private final SolverFactory factory;
+	private final long deadline;
+	private final int numThreads;
+	private final ExecutorService workers;
+	private final ScheduledThreadPoolExecutor timer;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * @param factory builds the solver for each puzzle
+	 * @param deadline time in ms each puzzle may take
+	 * @param numThreads number of puzzles solved at once
+	 */
+	public BatchSolver(SolverFactory factory, long deadline, int numThreads)
+	{
+		this.factory = factory;
+		this.deadline = deadline;
+		this.numThreads = numThreads;
+		this.workers = Executors.newFixedThreadPool(numThreads, daemonThreads("batch-solver"));
+		this.timer = new ScheduledThreadPoolExecutor(1, daemonThreads("batch-solver-deadlines"));
+		this.timer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * Uses one thread per available core.
+	 */
+	public BatchSolver(SolverFactory factory, long deadline)
+	{
+		this(factory, deadline, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * For batches of Tasks only, which each bring their own factory.
+	 */
+	public BatchSolver(long deadline, int numThreads)
+	{
+		this(null, deadline, numThreads);
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	/**
+	 * Solves every puzzle and waits for all of them.
+	 * @return one result per puzzle, in order
+	 */
+	public List<Result> solveAll(Collection<SudokuFile> puzzles)
+	{
+		List<Task> tasks = new ArrayList<Task>(puzzles.size());
+		for(SudokuFile puzzle : puzzles)
+		{
+			tasks.add(new Task(puzzle, defaultFactory()));
+		}
+		return solveAllTasks(tasks);
+	}
+
+	/**
+	 * Solves every task with its own factory and waits for all of them.
+	 * @return one result per task, in order
+	 */
+	public List<Result> solveAllTasks(Collection<Task> tasks)
+	{
+		List<Future<Result>> futures = new ArrayList<Future<Result>>(tasks.size());
+		int index = 0;
+		for(Task task : tasks)
+		{
+			futures.add(submit(index++, task));
+		}
+		List<Result> results = new ArrayList<Result>(futures.size());
+		for(Future<Result> future : futures)
+		{
+			results.add(await(future));
+		}
+		return results;
+	}
+
+	/**
+	 * Solves puzzles as they are pulled from <tt>puzzles</tt>, keeping only a few
+	 * per thread in flight, so arbitrarily long inputs run in bounded memory.
+	 * @return iterator over one result per puzzle, in order
+	 */
+	public Iterator<Result> solve(final Iterator<SudokuFile> puzzles)
+	{
+		final SolverFactory factory = defaultFactory();
+		return solveTasks(new Iterator<Task>() {
+			@Override
+			public boolean hasNext()
+			{
+				return puzzles.hasNext();
+			}
+
+			@Override
+			public Task next()
+			{
+				return new Task(puzzles.next(), factory);
+			}
+		});
+	}
+
+	/**
+	 * Solves tasks as they are pulled from <tt>tasks</tt>, each with its own factory,
+	 * keeping only a few per thread in flight.
+	 * @return iterator over one result per task, in order
+	 */
+	public Iterator<Result> solveTasks(final Iterator<Task> tasks)
+	{
+		return new Iterator<Result>() {
+			private final ArrayDeque<Future<Result>> inFlight = new ArrayDeque<Future<Result>>();
+			private int nextIndex = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				fill();
+				return !inFlight.isEmpty();
+			}
+
+			@Override
+			public Result next()
+			{
+				if(!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				Result result = await(inFlight.poll());
+				fill();
+				return result;
+			}
+
+			private void fill()
+			{
+				while(inFlight.size() < 2 * numThreads && tasks.hasNext())
+				{
+					inFlight.add(submit(nextIndex++, tasks.next()));
+				}
+			}
+		};
+	}
+
+	/**
+	 * Stops the worker threads. Solves still running are cancelled.
+	 */
+	@Override
+	public void close()
+	{
+		workers.shutdownNow();
+		timer.shutdownNow();
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	/**
+	 * @throws IllegalStateException if this BatchSolver was built for Tasks only
+	 */
+	private SolverFactory defaultFactory()
+	{
+		if(factory == null)
+		{
+			throw new IllegalStateException("This BatchSolver has no SolverFactory, solve Tasks with it instead");
+		}
+		return factory;
+	}
+
+	private Future<Result> submit(final int index, final Task task)
+	{
+		final SudokuFile puzzle = task.puzzle;
+		return workers.submit(new Callable<Result>() {
+			@Override
+			public Result call()
+			{
+				long startTime = System.currentTimeMillis();
+				final AtomicBoolean expired = new AtomicBoolean();
+				ScheduledFuture<?> cancellation = null;
+				try
+				{
+					final Solver solver = task.factory.create(puzzle);
+					cancellation = timer.schedule(new Runnable() {
+						@Override
+						public void run()
+						{
+							expired.set(true);
+							solver.cancel();
+						}
+					}, deadline, TimeUnit.MILLISECONDS);
+					solver.solve();
+					cancellation.cancel(false);
+
+					SolveResult result = solver.getResult();
+					SolveResult.Status status = result.getStatus();
+					if(status == SolveResult.Status.Cancelled && expired.get())
+					{
+						status = SolveResult.Status.TimedOut;
+					}
+					return new Result(index, puzzle, status, result.hasSolution() ? solver.getSolution() : null, null,
+							solver.getTimeTaken(), solver.getNumAssignments(), solver.getNumBacktracks());
+				}
+				catch(RuntimeException | StackOverflowError e)
+				{
+					if(cancellation != null)
+					{
+						cancellation.cancel(false);
+					}
+					return new Result(index, puzzle, SolveResult.Status.Failed, null, e, System.currentTimeMillis() - startTime, 0, 0);
+				}
+			}
+		});
+	}
+
+	private static Result await(Future<Result> future)
+	{
+		try
+		{
+			return future.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a batch result", e);
+		}
+		catch(ExecutionException e)
+		{
+			throw new IllegalStateException("A batch solve failed", e.getCause());
+		}
+	}
+
+	private static ThreadFactory daemonThreads(final String name)
+	{
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+
+	//===============================================================================
+	// Task
+	//===============================================================================
+
+	/**
+	 * One puzzle of a batch with the factory that builds its solver.
+	 */
+	public static class Task
+	{
+		private final SudokuFile puzzle;
+		private final SolverFactory factory;
+
+		public Task(SudokuFile puzzle, SolverFactory factory)
+		{
+			this.puzzle = puzzle;
+			this.factory = factory;
+		}
+
+		public SudokuFile getPuzzle()
+		{
+			return puzzle;
+		}
+	}
+
+	//===============================================================================
+	// Result
+	//===============================================================================
+
+	/**
+	 * Outcome and stats of one puzzle of a batch.
+	 */
+	public static class Result
+	{
+		private final int index;
+		private final SudokuFile puzzle;
+		private final SolveResult.Status status;
+		private final SudokuFile solution;
+		private final Throwable cause;
+		private final long runtime;
+		private final int numAssignments;
+		private final int numBacktracks;
+
+		private Result(int index, SudokuFile puzzle, SolveResult.Status status, SudokuFile solution, Throwable cause, long runtime, int numAssignments, int numBacktracks)
+		{
+			this.index = index;
+			this.puzzle = puzzle;
+			this.status = status;
+			this.solution = solution;
+			this.cause = cause;
+			this.runtime = runtime;
+			this.numAssignments = numAssignments;
+			this.numBacktracks = numBacktracks;
+		}
+
+		/**
+		 * @return position of the puzzle in its batch
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+
+		public SudokuFile getPuzzle()
+		{
+			return puzzle;
+		}
+
+		/**
+		 * @return the solved board, null if no solution was found
+		 */
+		public SudokuFile getSolution()
+		{
+			return solution;
+		}
+
+		public boolean isSolution()
+		{
+			return solution != null;
+		}
+
+		/**
+		 * @return why the solve stopped, as reported by its solver. TimedOut if the
+		 * solver was cancelled at its deadline, Failed if it threw.
+		 */
+		public SolveResult.Status getStatus()
+		{
+			return status;
+		}
+
+		/**
+		 * @return true if the solve was cancelled at its deadline
+		 */
+		public boolean isTimedOut()
+		{
+			return status == SolveResult.Status.TimedOut;
+		}
+
+		/**
+		 * @return true if building or running the solver threw
+		 */
+		public boolean isFailed()
+		{
+			return status == SolveResult.Status.Failed;
+		}
+
+		/**
+		 * @return what the solve threw, null unless it failed
+		 */
+		public Throwable getCause()
+		{
+			return cause;
+		}
+
+		public long getRuntime()
+		{
+			return runtime;
+		}
+
+		public int getNumAssignments()
+		{
+			return numAssignments;
+		}
+
+		public int getNumBacktracks()
+		{
+			return numBacktracks;
+		}
+
+		public String toString()
+		{
+			return "puzzle" + index + ":" + runtime + " ms, " + numAssignments + " assignments, " + numBacktracks + " backtracks"
+					+ (solution != null ? "" : isTimedOut() ? " Timed out" : isFailed() ? " Failed: " + cause : " Not a Solution");
+		}
+	}
+}
@@ -0,0 +1,705 @@
+package cspSolver;
+
+import java.util.Arrays;
+
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.Converter;
+import sudoku.SudokuFile;
+
+/**
+ * Backtracking solver working on a CompactBoard instead of a ConstraintNetwork.
+ * Takes the same heuristic and consistency options as BTSolver, but every
+ * lookup is an array access on int cell indices, so no Variable, Domain or
+ * Constraint objects are touched during the search.
+ *
+ * ArcConsistency and AC3 both run the unit worklist propagation.
+ *
+ * @see BTSolver
+ */
+public class CompactBTSolver implements Solver{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private CompactBoard board;
+	private boolean hasSolution = false;
+	private SudokuFile sudokuGrid;
+
+	private int numAssignments;
+	private int numBacktracks;
+	private long startTime;
+	private long endTime;
+	private volatile boolean cancelled;
+	private boolean stopped;		//true if the last solve was cancelled before it finished
+
+	private VariableSelectionHeuristic varHeuristics = VariableSelectionHeuristic.None;
+	private ValueSelectionHeuristic valHeuristics = ValueSelectionHeuristic.None;
+	private ConsistencyCheck cChecks = ConsistencyCheck.None;
+	private HeuristicCheck heurCheck = HeuristicCheck.None;
+
+	//cells assigned since the last consistency check
+	private int[] newAssignments;
+	private int numNewAssignments;
+
+	//unit worklist, a ring buffer holding each unit at most once
+	private int[] unitQueue;
+	private boolean[] queued;
+	private int queueHead;
+	private int queueSize;
+
+	//scratch space for the heuristic checks
+	private long[] mask;
+	private int[] unitCells;
+	private HiddenSubsets hidden;	//positions are cells
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	public CompactBTSolver(SudokuFile sf)
+	{
+		this.board = Converter.SudokuFileToCompactBoard(sf);
+		this.sudokuGrid = sf;
+		int numUnits = board.getUnits().length;
+		newAssignments = new int[board.getNumCells()];
+		unitQueue = new int[numUnits];
+		queued = new boolean[numUnits];
+		mask = new long[board.getWordsPerCell()];
+		unitCells = new int[board.getNumCells()];
+		hidden = new HiddenSubsets(board.getNumValues()) {
+			boolean keepOnly(int cell, int a, int b, int c)
+			{
+				return CompactBTSolver.this.keepOnly(cell, a, b, c);
+			}
+		};
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	public void setVariableSelectionHeuristic(VariableSelectionHeuristic vsh)
+	{
+		this.varHeuristics = vsh;
+	}
+
+	public void setValueSelectionHeuristic(ValueSelectionHeuristic vsh)
+	{
+		this.valHeuristics = vsh;
+	}
+
+	public void setConsistencyChecks(ConsistencyCheck cc)
+	{
+		this.cChecks = cc;
+	}
+
+	public void setHeuristicCheck(HeuristicCheck check)
+	{
+		this.heurCheck = check;
+	}
+
+	/**
+	 * Stops a running solve at the next node it visits.
+	 */
+	@Override
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * @return true if a solution has been found, false otherwise.
+	 */
+	public boolean hasSolution()
+	{
+		return hasSolution;
+	}
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	public SudokuFile getSolution()
+	{
+		return sudokuGrid;
+	}
+
+	public void printSolverStats()
+	{
+		System.out.println("Time taken:" + (endTime-startTime) + " ms");
+		System.out.println("Number of assignments: " + numAssignments);
+		System.out.println("Number of backtracks: " + numBacktracks);
+	}
+
+	/**
+	 * @return time taken by the solver in milliseconds
+	 */
+	public long getTimeTaken()
+	{
+		return endTime-startTime;
+	}
+
+	public int getNumAssignments()
+	{
+		return numAssignments;
+	}
+
+	public int getNumBacktracks()
+	{
+		return numBacktracks;
+	}
+
+	/**
+	 * @return the outcome and statistics of the last solve
+	 */
+	public SolveResult getResult()
+	{
+		SolveResult.Status status = hasSolution ? SolveResult.Status.Solved : stopped ? SolveResult.Status.Cancelled : SolveResult.Status.NoSolution;
+		return new SolveResult(status, hasSolution, sudokuGrid, (endTime - startTime) * 1000000, numAssignments, numBacktracks);
+	}
+
+	public CompactBoard getBoard()
+	{
+		return board;
+	}
+
+	//===============================================================================
+	// Consistency Checks
+	//===============================================================================
+
+	/**
+	 * Checks whether the changes since the last time this method was called are consistent.
+	 * @return true if consistent, false otherwise
+	 */
+	private boolean checkConsistency()
+	{
+		boolean isConsistent;
+		switch(cChecks)
+		{
+		case ForwardChecking:	isConsistent = forwardChecking();
+		break;
+		case ArcConsistency:
+		case AC3:				isConsistent = arcConsistency();
+		break;
+		default:				isConsistent = assignmentsCheck();
+		break;
+		}
+		numNewAssignments = 0;
+		return isConsistent;
+	}
+
+	/**
+	 * default consistency check. Ensures no two cells are assigned to the same value.
+	 */
+	private boolean assignmentsCheck()
+	{
+		for(int c = 0; c < board.getNumCells(); c++)
+		{
+			if(!board.isAssigned(c))
+				continue;
+			int value = board.getAssignment(c);
+			for(int peer : board.getPeers(c))
+			{
+				if(board.isAssigned(peer) && board.getAssignment(peer) == value)
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the value of each newly assigned cell from its peers. Peers left with a
+	 * single value are propagated in turn; stops as soon as a domain is wiped out.
+	 */
+	private boolean forwardChecking()
+	{
+		while(numNewAssignments > 0)
+		{
+			int c = newAssignments[--numNewAssignments];
+			int value = board.getAssignment(c);
+			for(int peer : board.getPeers(c))
+			{
+				if(board.isAssigned(peer))
+				{
+					if(board.getAssignment(peer) == value)
+						return false;
+					continue;
+				}
+				if(board.remove(peer, value) && !afterRemoval(peer))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Unit worklist propagation: only the units containing a newly assigned cell are
+	 * revised, and revising a unit that assigns another cell queues that cell's units.
+	 */
+	private boolean arcConsistency()
+	{
+		queueNewAssignments();
+		while(queueSize > 0)
+		{
+			int u = unitQueue[queueHead];
+			queueHead = (queueHead + 1) % unitQueue.length;
+			queueSize--;
+			queued[u] = false;
+			if(!reviseUnit(board.getUnits()[u]))
+			{
+				while(queueSize > 0)
+				{
+					queued[unitQueue[queueHead]] = false;
+					queueHead = (queueHead + 1) % unitQueue.length;
+					queueSize--;
+				}
+				return false;
+			}
+			queueNewAssignments();
+		}
+		return true;
+	}
+
+	private void queueNewAssignments()
+	{
+		while(numNewAssignments > 0)
+		{
+			int c = newAssignments[--numNewAssignments];
+			for(int u : board.getUnitsOfCell(c))
+			{
+				if(!queued[u])
+				{
+					queued[u] = true;
+					unitQueue[(queueHead + queueSize) % unitQueue.length] = u;
+					queueSize++;
+				}
+			}
+		}
+	}
+
+	private boolean reviseUnit(int[] unit)
+	{
+		for(int c : unit)
+		{
+			if(!board.isAssigned(c))
+				continue;
+			int value = board.getAssignment(c);
+			for(int other : unit)
+			{
+				if(other == c)
+					continue;
+				if(board.isAssigned(other))
+				{
+					if(board.getAssignment(other) == value)
+						return false;
+					continue;
+				}
+				if(board.remove(other, value) && !afterRemoval(other))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Records a cell narrowed to a single value for propagation.
+	 * @return false if the cell's domain is now empty
+	 */
+	private boolean afterRemoval(int cell)
+	{
+		int size = board.size(cell);
+		if(size == 1)
+			newAssignments[numNewAssignments++] = cell;
+		return size != 0;
+	}
+
+	//===============================================================================
+	// Heuristic Checks
+	//===============================================================================
+
+	private boolean checkHeuristic()
+	{
+		boolean consistent = true;
+		if(heurCheck == HeuristicCheck.NakedPairs || heurCheck == HeuristicCheck.Both)
+			consistent = nakedPairs();
+		if(consistent && (heurCheck == HeuristicCheck.NakedTriples || heurCheck == HeuristicCheck.Both))
+			consistent = nakedTriples();
+		if(heurCheck == HeuristicCheck.All)
+			consistent = consistent && nakedPairs() && nakedTriples();
+		if(consistent && (heurCheck == HeuristicCheck.HiddenSingles || heurCheck == HeuristicCheck.All))
+			consistent = hiddenSingles();
+		if(consistent && (heurCheck == HeuristicCheck.HiddenPairs || heurCheck == HeuristicCheck.All))
+			consistent = hiddenPairs();
+		if(consistent && (heurCheck == HeuristicCheck.HiddenTriples || heurCheck == HeuristicCheck.All))
+			consistent = hiddenTriples();
+		if(consistent && numNewAssignments > 0)
+			consistent = checkConsistency();
+		numNewAssignments = 0;
+		return consistent;
+	}
+
+	/**
+	 * In each unit, two unassigned cells with the same two values remove those values from the rest of the unit.
+	 */
+	private boolean nakedPairs()
+	{
+		for(int[] unit : board.getUnits())
+		{
+			for(int i = 0; i < unit.length; i++)
+			{
+				if(board.size(unit[i]) != 2)
+					continue;
+				for(int j = i + 1; j < unit.length; j++)
+				{
+					if(board.size(unit[j]) == 2 && sameDomain(unit[i], unit[j]))
+					{
+						loadMask(unit[i]);
+						if(!removeFromUnit(unit, unit[i], unit[j], -1))
+							return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * In each unit, three unassigned cells whose domains together hold three values remove
+	 * those values from the rest of the unit.
+	 */
+	private boolean nakedTriples()
+	{
+		for(int[] unit : board.getUnits())
+		{
+			int count = 0;
+			for(int c : unit)
+			{
+				int size = board.size(c);
+				if(size == 2 || size == 3)
+					unitCells[count++] = c;
+			}
+			for(int i = 0; i < count; i++)
+			{
+				for(int j = i + 1; j < count; j++)
+				{
+					for(int k = j + 1; k < count; k++)
+					{
+						int a = unitCells[i], b = unitCells[j], c = unitCells[k];
+						int union = 0;
+						for(int w = 0; w < mask.length; w++)
+						{
+							mask[w] = board.word(a, w) | board.word(b, w) | board.word(c, w);
+							union += Long.bitCount(mask[w]);
+						}
+						if(union == 3 && !removeFromUnit(unit, a, b, c))
+							return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * In each unit, a value that only one cell can still take is assigned to that cell.
+	 */
+	private boolean hiddenSingles()
+	{
+		for(int[] unit : board.getUnits())
+		{
+			if(!countOccurrences(unit))
+				return false;
+			for(int v = 1; v <= hidden.numValues(); v++)
+			{
+				if(hidden.occurrences(v) != 1)
+					continue;
+				int cell = hidden.firstPosition(v);
+				if(!board.contains(cell, v))	//narrowed to another hidden single above
+					return false;
+				if(!board.isAssigned(cell))
+				{
+					board.assign(cell, v);
+					afterRemoval(cell);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * In each unit, two values that can only go to the same two cells remove every other value from those cells.
+	 */
+	private boolean hiddenPairs()
+	{
+		for(int[] unit : board.getUnits())
+		{
+			if(!countOccurrences(unit) || !hidden.pairs())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * In each unit, three values that can only go to the same three cells remove every other value from those cells.
+	 */
+	private boolean hiddenTriples()
+	{
+		for(int[] unit : board.getUnits())
+		{
+			if(!countOccurrences(unit) || !hidden.triples())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Counts, for each value, the cells of the unit whose domain holds it.
+	 * @return false if some value has no cell left to take it
+	 */
+	private boolean countOccurrences(int[] unit)
+	{
+		hidden.clear();
+		for(int c : unit)
+		{
+			for(int v = board.nextValue(c, 0); v != -1; v = board.nextValue(c, v))
+				hidden.add(c, v);
+		}
+		return hidden.allPlaced();
+	}
+
+	/**
+	 * Removes every value but a, b and c from the cell's domain.
+	 * @return false if the cell's domain is now empty
+	 */
+	private boolean keepOnly(int cell, int a, int b, int c)
+	{
+		Arrays.fill(mask, -1L);
+		mask[(a - 1) >>> 6] &= ~(1L << (a - 1));
+		mask[(b - 1) >>> 6] &= ~(1L << (b - 1));
+		if(c > 0)
+			mask[(c - 1) >>> 6] &= ~(1L << (c - 1));
+		return board.removeAll(cell, mask) == 0 || afterRemoval(cell);
+	}
+
+	private boolean sameDomain(int a, int b)
+	{
+		for(int w = 0; w < mask.length; w++)
+		{
+			if(board.word(a, w) != board.word(b, w))
+				return false;
+		}
+		return true;
+	}
+
+	private void loadMask(int cell)
+	{
+		for(int w = 0; w < mask.length; w++)
+			mask[w] = board.word(cell, w);
+	}
+
+	/**
+	 * Removes the values in mask from the unassigned cells of the unit other than a, b and c.
+	 */
+	private boolean removeFromUnit(int[] unit, int a, int b, int c)
+	{
+		for(int other : unit)
+		{
+			if(other == a || other == b || other == c || board.isAssigned(other))
+				continue;
+			if(board.removeAll(other, mask) > 0 && !afterRemoval(other))
+				return false;
+		}
+		return true;
+	}
+
+	//===============================================================================
+	// Variable and Value Selection
+	//===============================================================================
+
+	/**
+	 * @return next cell to assign, -1 if every cell is assigned
+	 */
+	private int selectNextVariable()
+	{
+		switch(varHeuristics)
+		{
+		case MinimumRemainingValue:	return getMRV();
+		case Degree:				return getDegree();
+		default:					return getfirstUnassignedVariable();
+		}
+	}
+
+	private int getfirstUnassignedVariable()
+	{
+		for(int c = 0; c < board.getNumCells(); c++)
+		{
+			if(!board.isAssigned(c))
+				return c;
+		}
+		return -1;
+	}
+
+	private int getMRV()
+	{
+		int min = -1;
+		for(int c = 0; c < board.getNumCells(); c++)
+		{
+			int size = board.size(c);
+			if(size != 1 && (min == -1 || size < board.size(min)))
+			{
+				min = c;
+				if(size == 0)
+					break;
+			}
+		}
+		return min;
+	}
+
+	private int getDegree()
+	{
+		int constraints = 0;
+		int mostConstrained = -1;
+		for(int c = 0; c < board.getNumCells(); c++)
+		{
+			if(board.isAssigned(c))
+				continue;
+			int constrainedCount = 0;
+			for(int peer : board.getPeers(c))
+			{
+				if(!board.isAssigned(peer))
+					constrainedCount++;
+			}
+			if(constrainedCount >= constraints)
+			{
+				constraints = constrainedCount;
+				mostConstrained = c;
+			}
+		}
+		return mostConstrained;
+	}
+
+	/**
+	 * @return the values of the cell's domain in the order they should be tried
+	 */
+	private int[] getNextValues(int cell)
+	{
+		int[] values = new int[board.size(cell)];
+		int count = 0;
+		for(int v = board.nextValue(cell, 0); v != -1; v = board.nextValue(cell, v))
+			values[count++] = v;
+
+		if(valHeuristics == ValueSelectionHeuristic.LeastConstrainingValue && count > 1)
+		{
+			//sort by the number of unassigned peers each value would constrain, keeping ties in value order
+			long[] keyed = new long[count];
+			for(int i = 0; i < count; i++)
+			{
+				int constrainingFactor = 0;
+				for(int peer : board.getPeers(cell))
+				{
+					if(!board.isAssigned(peer) && board.contains(peer, values[i]))
+						constrainingFactor++;
+				}
+				keyed[i] = ((long) constrainingFactor << 32) | values[i];
+			}
+			Arrays.sort(keyed);
+			for(int i = 0; i < count; i++)
+				values[i] = (int) keyed[i];
+		}
+		return values;
+	}
+
+	/**
+	 * Called when solver finds a solution
+	 */
+	private void success()
+	{
+		hasSolution = true;
+		sudokuGrid = Converter.CompactBoardToSudokuFile(board, sudokuGrid.getN(), sudokuGrid.getP(), sudokuGrid.getQ());
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	/**
+	 * Method to start the solver
+	 */
+	public void solve()
+	{
+		startTime = System.currentTimeMillis();
+		stopped = false;
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		boolean consistent = true;
+		if(cChecks != ConsistencyCheck.None)
+		{
+			//propagate the initial values once before searching
+			for(int c = 0; c < board.getNumCells(); c++)
+			{
+				if(board.isAssigned(c))
+					newAssignments[numNewAssignments++] = c;
+			}
+			consistent = checkConsistency();
+		}
+		if(consistent)
+			solve(0);
+		endTime = System.currentTimeMillis();
+		if(event.isEnabled())
+		{
+			event.finish("CompactBTSolver", varHeuristics + "/" + valHeuristics + "/" + cChecks + "/" + heurCheck, sudokuGrid.getN(), numAssignments, numBacktracks,
+					hasSolution ? SolveEvent.SOLVED : stopped ? SolveEvent.CANCELLED : SolveEvent.NO_SOLUTION);
+		}
+	}
+
+	/**
+	 * Solver
+	 * @param level How deep the solver is in its recursion.
+	 */
+	private void solve(int level)
+	{
+		if(hasSolution)
+			return;
+		if(cancelled || Thread.currentThread().isInterrupted())
+		{
+			stopped = true;
+			return;
+		}
+
+		int cell = selectNextVariable();
+		if(cell == -1)
+		{
+			success();
+			return;
+		}
+
+		for(int value : getNextValues(cell))
+		{
+			board.mark();
+			board.assign(cell, value);
+			numAssignments++;
+			newAssignments[numNewAssignments++] = cell;
+
+			if(checkConsistency() && checkHeuristic())
+				solve(level + 1);
+
+			if(hasSolution)
+				return;
+
+			board.undo();
+			numBacktracks++;
+		}
+	}
+
+	@Override
+	public void run() {
+		solve();
+	}
+}
@@ -0,0 +1,372 @@
+package cspSolver;
+
+import java.util.Arrays;
+
+/**
+ * Flat-array representation of an all-different CSP such as sudoku, used by
+ * CompactBTSolver. Cells are int indices, every cell's domain is a run of
+ * longs in one shared array (value v being bit v-1), and the units (rows,
+ * columns, blocks) and peers of each cell are precomputed int[][] tables.
+ *
+ * The board keeps its own undo log in primitive arrays, like Trail: each cell
+ * is recorded at most once per mark, and undo restores everything changed
+ * since the latest mark.
+ *
+ * @see sudoku.Converter#SudokuFileToCompactBoard(sudoku.SudokuFile)
+ */
+public class CompactBoard {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final int numValues;
+	private final int numCells;
+	private final int words;			//longs per cell
+	private final int[][] units;
+	private final int[][] unitsOfCell;
+	private final int[][] peers;
+
+	private final long[] domains;		//numCells * words
+	private final int[] sizes;
+
+	//undo log
+	private int[] trailCells;
+	private long[] trailWords;
+	private int[] trailStamps;
+	private int trailSize;
+	private int[] marks = new int[64];
+	private int[] markStamps = new int[64];
+	private int numMarks;
+	private final int[] cellStamps;
+	private int stamp;
+	private int nextStamp = 1;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * @param numValues values range over 1..numValues
+	 * @param units groups of cells that must all hold different values
+	 * @param values initial value of each cell, 0 if unassigned
+	 */
+	public CompactBoard(int numValues, int[][] units, int[] values)
+	{
+		this.numValues = numValues;
+		this.numCells = values.length;
+		this.words = (numValues + 63) / 64;
+		this.units = units;
+
+		int[] unitCount = new int[numCells];
+		for(int[] unit : units)
+			for(int cell : unit)
+				unitCount[cell]++;
+		unitsOfCell = new int[numCells][];
+		for(int c = 0; c < numCells; c++)
+			unitsOfCell[c] = new int[unitCount[c]];
+		Arrays.fill(unitCount, 0);
+		for(int u = 0; u < units.length; u++)
+			for(int cell : units[u])
+				unitsOfCell[cell][unitCount[cell]++] = u;
+
+		peers = new int[numCells][];
+		boolean[] seen = new boolean[numCells];
+		int[] buffer = new int[numCells];
+		for(int c = 0; c < numCells; c++)
+		{
+			int count = 0;
+			for(int u : unitsOfCell[c])
+			{
+				for(int other : units[u])
+				{
+					if(other != c && !seen[other])
+					{
+						seen[other] = true;
+						buffer[count++] = other;
+					}
+				}
+			}
+			peers[c] = Arrays.copyOf(buffer, count);
+			for(int i = 0; i < count; i++)
+				seen[buffer[i]] = false;
+		}
+
+		domains = new long[numCells * words];
+		sizes = new int[numCells];
+		for(int c = 0; c < numCells; c++)
+		{
+			if(values[c] == 0)
+			{
+				for(int v = 1; v <= numValues; v++)
+					domains[c * words + ((v - 1) >>> 6)] |= 1L << (v - 1);
+				sizes[c] = numValues;
+			}
+			else
+			{
+				domains[c * words + ((values[c] - 1) >>> 6)] = 1L << (values[c] - 1);
+				sizes[c] = 1;
+			}
+		}
+
+		int capacity = Math.max(64, numCells);
+		trailCells = new int[capacity];
+		trailStamps = new int[capacity];
+		trailWords = new long[capacity * words];
+		cellStamps = new int[numCells];
+	}
+
+	/**
+	 * Copy constructor. The copy shares the immutable unit and peer tables and
+	 * starts with the same domains and an empty undo log.
+	 * @param board the board to copy
+	 */
+	public CompactBoard(CompactBoard board)
+	{
+		this.numValues = board.numValues;
+		this.numCells = board.numCells;
+		this.words = board.words;
+		this.units = board.units;
+		this.unitsOfCell = board.unitsOfCell;
+		this.peers = board.peers;
+		this.domains = board.domains.clone();
+		this.sizes = board.sizes.clone();
+		int capacity = Math.max(64, numCells);
+		trailCells = new int[capacity];
+		trailStamps = new int[capacity];
+		trailWords = new long[capacity * words];
+		cellStamps = new int[numCells];
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	public int getNumCells()
+	{
+		return numCells;
+	}
+
+	public int getNumValues()
+	{
+		return numValues;
+	}
+
+	public int[][] getUnits()
+	{
+		return units;
+	}
+
+	/**
+	 * @return indices in getUnits() of the units containing the cell. The array must not be modified.
+	 */
+	public int[] getUnitsOfCell(int cell)
+	{
+		return unitsOfCell[cell];
+	}
+
+	/**
+	 * @return the cells sharing a unit with the cell. The array must not be modified.
+	 */
+	public int[] getPeers(int cell)
+	{
+		return peers[cell];
+	}
+
+	public int size(int cell)
+	{
+		return sizes[cell];
+	}
+
+	public boolean isAssigned(int cell)
+	{
+		return sizes[cell] == 1;
+	}
+
+	/**
+	 * @return the value of an assigned cell, 0 if the cell is unassigned
+	 */
+	public int getAssignment(int cell)
+	{
+		return sizes[cell] == 1 ? nextValue(cell, 0) : 0;
+	}
+
+	public boolean contains(int cell, int value)
+	{
+		int bit = value - 1;
+		return (domains[cell * words + (bit >>> 6)] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * @return the lowest value of the cell's domain greater than <tt>value</tt>, -1 if there is none
+	 */
+	public int nextValue(int cell, int value)
+	{
+		if(value >= numValues)
+			return -1;
+		int base = cell * words;
+		int w = value >>> 6;
+		long rest = domains[base + w] & (-1L << value);
+		while(rest == 0)
+		{
+			if(++w == words)
+				return -1;
+			rest = domains[base + w];
+		}
+		return w * 64 + Long.numberOfTrailingZeros(rest) + 1;
+	}
+
+	/**
+	 * @return word w of the cell's domain, holding values w*64+1 .. w*64+64
+	 */
+	public long word(int cell, int w)
+	{
+		return domains[cell * words + w];
+	}
+
+	public int getWordsPerCell()
+	{
+		return words;
+	}
+
+	/**
+	 * @return the current values of all cells, 0 for unassigned cells
+	 */
+	public int[] getAssignments()
+	{
+		int[] values = new int[numCells];
+		for(int c = 0; c < numCells; c++)
+			values[c] = getAssignment(c);
+		return values;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * Removes a value from the cell's domain, recording the old domain for undo.
+	 * @return true if the value was in the domain
+	 */
+	public boolean remove(int cell, int value)
+	{
+		if(!contains(cell, value))
+			return false;
+		record(cell);
+		int bit = value - 1;
+		domains[cell * words + (bit >>> 6)] &= ~(1L << bit);
+		sizes[cell]--;
+		return true;
+	}
+
+	/**
+	 * Removes from the cell's domain every value set in <tt>mask</tt>, which is laid out like word(cell, 0..).
+	 * @return number of values removed
+	 */
+	public int removeAll(int cell, long[] mask)
+	{
+		int base = cell * words;
+		int removed = 0;
+		for(int w = 0; w < words; w++)
+			removed += Long.bitCount(domains[base + w] & mask[w]);
+		if(removed == 0)
+			return 0;
+		record(cell);
+		for(int w = 0; w < words; w++)
+			domains[base + w] &= ~mask[w];
+		sizes[cell] -= removed;
+		return removed;
+	}
+
+	/**
+	 * Narrows the cell's domain to a single value, recording the old domain for undo.
+	 */
+	public void assign(int cell, int value)
+	{
+		record(cell);
+		int base = cell * words;
+		Arrays.fill(domains, base, base + words, 0L);
+		domains[base + ((value - 1) >>> 6)] = 1L << (value - 1);
+		sizes[cell] = 1;
+	}
+
+	/**
+	 * Places a marker in the undo log. undo() restores the board to this point.
+	 */
+	public void mark()
+	{
+		if(numMarks == marks.length)
+		{
+			marks = Arrays.copyOf(marks, numMarks * 2);
+			markStamps = Arrays.copyOf(markStamps, numMarks * 2);
+		}
+		marks[numMarks] = trailSize;
+		markStamps[numMarks] = stamp;
+		numMarks++;
+		stamp = nextStamp++;
+	}
+
+	/**
+	 * Restores every domain changed since the latest marker and pops the marker.
+	 */
+	public void undo()
+	{
+		numMarks--;
+		int target = marks[numMarks];
+		while(trailSize > target)
+		{
+			trailSize--;
+			int cell = trailCells[trailSize];
+			System.arraycopy(trailWords, trailSize * words, domains, cell * words, words);
+			int size = 0;
+			for(int w = 0; w < words; w++)
+				size += Long.bitCount(domains[cell * words + w]);
+			sizes[cell] = size;
+			cellStamps[cell] = trailStamps[trailSize];
+		}
+		stamp = markStamps[numMarks];
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	private void record(int cell)
+	{
+		if(cellStamps[cell] == stamp || numMarks == 0)
+			return;
+		if(trailSize == trailCells.length)
+		{
+			trailCells = Arrays.copyOf(trailCells, trailSize * 2);
+			trailStamps = Arrays.copyOf(trailStamps, trailSize * 2);
+			trailWords = Arrays.copyOf(trailWords, trailSize * 2 * words);
+		}
+		trailCells[trailSize] = cell;
+		trailStamps[trailSize] = cellStamps[cell];
+		System.arraycopy(domains, cell * words, trailWords, trailSize * words, words);
+		cellStamps[cell] = stamp;
+		trailSize++;
+	}
+
+	//===============================================================================
+	// String representation
+	//===============================================================================
+
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(numCells + " cells, " + units.length + " units:");
+		for(int c = 0; c < numCells; c++)
+		{
+			sb.append(c % 16 == 0 ? "\n" : " ").append(c).append("{");
+			String delim = "";
+			for(int v = nextValue(c, 0); v != -1; v = nextValue(c, v))
+			{
+				sb.append(delim).append(v);
+				delim = ",";
+			}
+			sb.append("}");
+		}
+		return sb.toString();
+	}
+}
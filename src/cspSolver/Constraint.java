@@ -1,270 +1,394 @@
-package cspSolver;
-
-import java.lang.reflect.Array;
-import java.util.*;
-
-/**
- * Constraint represents a NotEquals constraint on a set of variables. 
- * Used to ensure none of the variables contained in the constraint have the same assignment. 
- */
-public class Constraint{ 
-	
-	//===============================================================================
-	// Properties 
-	//===============================================================================
-
-	public List<Variable> vars;
-
-	//===============================================================================
-	// Constructors
-	//===============================================================================
-
-	public Constraint()
-	{
-		vars = new ArrayList<Variable>();
-	}
-	
-	public Constraint(List<Variable> vars)
-	{
-		this.vars = vars;
-	}
-	
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-
-	public void addVariable(Variable v)
-	{
-		vars.add(v);
-	}
-		
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-	
-	public int size()
-	{
-		return vars.size();
-	}
-	
-	/**
-	 * 
-	 * @param v a Variable
-	 * @return true if v is in the constraint, false otherwise
-	 */
-	public boolean contains(Variable v)
-	{
-		return vars.contains(v) ? true: false;
-	}
-	
-	/**
-	 * Returns whether or not the a variable in the constraint has been modified.
-	 * 
-	 * @return
-	 */
-	public boolean isModified()
-	{
-		for (Variable var : vars)
-		{
-			if (var.isModified())
-			{
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Used for local search
-	 * @return
-	 */
-	public int getConflicts()
-	{
-		int numConflicts = 0;
-		for(Variable var : vars)
-		{
-			for (Variable otherVar : vars)
-			{
-				if(var.equals(otherVar))
-				{
-					continue;
-				}
-				else if(var.getAssignment().equals(otherVar.getAssignment()))
-				{
-					numConflicts++;
-				}
-			}
-		}
-		
-		return numConflicts;
-	}
-	
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-	
-	/**
-	 * Attempts to propagate the notequal constraint through the variables in 
-	 * the constraint. If it fails to do so, the propagation stops midway
-	 * and does not reset the changes to the domains of the variables made
-	 * so far. 
-	 * @return true if the constraint is consistent and propagation succeeds, 
-	 * false otherwise
-	 */
-	public boolean propagateConstraint()
-	{
-		//compares assignments and determines if the assigment breaks the constraints
-		for(Variable var : vars)
-		{
-			if(!var.isAssigned())
-				continue;
-			Integer varAssignment = var.getAssignment();
-			for (Variable otherVar : vars)
-			{
-				if(var.equals(otherVar))
-				{
-					continue;
-				}
-				if (otherVar.size() == 1 && otherVar.getAssignment() == varAssignment)
-				{
-					return false;
-				}
-				otherVar.removeValueFromDomain(varAssignment);
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * TODO: Implement naked pairs
-	 * @return
-	 */
-	public boolean propagateNakedPairs()
-	{
-		List<Variable> pairs = new ArrayList<>();
-		List<Variable> nakedPairs = new ArrayList<>(2);
-
-		for (Variable v : vars)  // get all Variables with only 2 values left in its Domain
-		{
-			if (v.isAssigned())
-				continue;
-			if (v.getDomain().size() == 2)
-				pairs.add(v);
-		}
-
-		outer:
-		for (int i = 0; i < pairs.size() - 1; i++)  // for every Variable with 2 values left in its Domain
-		{
-			for (int j = i+1; j < pairs.size(); j++)
-			{
-				if (pairs.get(i).getDomain().isSubsetOf(pairs.get(j).getDomain()))  // check if another Variable has those same 2 values left in Domain
-				{
-					nakedPairs.add(pairs.get(i));
-					nakedPairs.add(pairs.get(j));
-					break outer;
-
-				}
-			}
-		}
-
-		if (nakedPairs.size() > 0)  // if we found any naked pairs
-		{
-			Domain domain = nakedPairs.get(0).getDomain();  // both variables have the same domain, so only need to grab 1
-			for (Variable v : vars)
-			{
-				if (!v.isAssigned() && !nakedPairs.contains(v))
-					v.removeValuesFromDomain(domain);
-			}
-			return true;
-		}
-
-		return false;
-	}
-
-	/**
-	 * TODO: Implement naked triples
-	 */
-	public boolean propagateNakedTriples()
-	{
-		ArrayList<Variable> threes = new ArrayList<>();
-		ArrayList<Variable> twos = new ArrayList<>();
-
-		for(Variable v : vars) {
-			if(v.isAssigned())
-				continue;
-			if (v.getDomain().size() == 3)
-				threes.add(v);
-			else if(v.getDomain().size() == 2)
-				twos.add(v);
-		}
-
-		ArrayList<Variable> targets = null;
-		outer:
-		for(int i = 0; i < threes.size(); i++)
-		{
-			targets = new ArrayList<>(3);
-			targets.add(threes.get(i));
-			for(int j = 0; j < threes.size(); j++)
-			{
-				if(j == i)
-					continue;
-
-				if(threes.get(j).getDomain().isSubsetOf(threes.get(i).getDomain()))
-					targets.add(threes.get(j));
-
-				if(targets.size() == 3) //found naked triple
-					break outer;
-			}
-
-			for(int j = 0; j < twos.size(); j++)
-			{
-				if(twos.get(j).getDomain().isSubsetOf(threes.get(i).getDomain()))
-					targets.add(twos.get(j));
-
-				if(targets.size() == 3) //found naked triple
-					break outer;
-			}
-		}
-
-		if(targets != null && targets.size() == 3) //Then we know this is a naked triple
-		{
-			Domain d = targets.get(0).getDomain();
-			for(Variable v : vars)
-			{
-				if(!targets.contains(v))
-					v.removeValuesFromDomain(d);
-			}
-			return true;
-		}
-
-		return false;
-	}
-
-	/**
-	 * Used for local search. Same as propagate constraint. 
-	 * @return true if constraint is consistent, false otherwise. 
-	 */
-	public boolean isConsistent()
-	{
-		return propagateConstraint();
-	}
-
-	//===============================================================================
-	// String representation
-	//===============================================================================
-	
-	public String toString()
-	{
-		StringBuilder sb = new StringBuilder("{");
-		String delim = "";
-		for(Variable v : vars)
-		{
-			sb.append(delim).append(v.getName());
-			delim = ",";
-		}
-		sb.append("}");
-		return sb.toString();
-	}
-
-	
-}
+package cspSolver;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * Constraint represents a NotEquals constraint on a set of variables. 
+ * Used to ensure none of the variables contained in the constraint have the same assignment. 
+ */
+public class Constraint{ 
+	
+	//===============================================================================
+	// Properties 
+	//===============================================================================
+
+	public List<Variable> vars;
+
+	//scratch space for the hidden subset rules, positions are indices into vars
+	private HiddenSubsets hidden;
+
+	//scratch space for propagateConstraint, bit v-1 set if an assigned variable holds v
+	private long[] assignedValues;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	public Constraint()
+	{
+		vars = new ArrayList<Variable>();
+	}
+	
+	public Constraint(List<Variable> vars)
+	{
+		this.vars = vars;
+	}
+	
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	public void addVariable(Variable v)
+	{
+		vars.add(v);
+	}
+		
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+	
+	public int size()
+	{
+		return vars.size();
+	}
+	
+	/**
+	 * 
+	 * @param v a Variable
+	 * @return true if v is in the constraint, false otherwise
+	 */
+	public boolean contains(Variable v)
+	{
+		return vars.contains(v) ? true: false;
+	}
+	
+	/**
+	 * Returns whether or not the a variable in the constraint has been modified.
+	 * 
+	 * @return
+	 */
+	public boolean isModified()
+	{
+		for (Variable var : vars)
+		{
+			if (var.isModified())
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Used for local search
+	 * @return
+	 */
+	public int getConflicts()
+	{
+		int numConflicts = 0;
+		for(Variable var : vars)
+		{
+			for (Variable otherVar : vars)
+			{
+				if(var.equals(otherVar))
+				{
+					continue;
+				}
+				else if(var.getAssignment().equals(otherVar.getAssignment()))
+				{
+					numConflicts++;
+				}
+			}
+		}
+		
+		return numConflicts;
+	}
+	
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+	
+	/**
+	 * Attempts to propagate the notequal constraint through the variables in 
+	 * the constraint. If it fails to do so, the propagation stops midway
+	 * and does not reset the changes to the domains of the variables made
+	 * so far. 
+	 *
+	 * The values of the assigned variables are gathered into a bitset and removed
+	 * from each unassigned domain in one word operation, so a pass is linear in
+	 * the number of variables. Passes repeat while they assign more variables.
+	 * @return true if the constraint is consistent and propagation succeeds, 
+	 * false otherwise
+	 */
+	public boolean propagateConstraint()
+	{
+		int numWords = 1;
+		for(Variable var : vars)
+		{
+			numWords = Math.max(numWords, var.getDomain().wordCount());
+		}
+		if(assignedValues == null || assignedValues.length < numWords)
+		{
+			assignedValues = new long[numWords];
+		}
+
+		boolean newlyAssigned = true;
+		while(newlyAssigned)
+		{
+			//compares assignments and determines if the assigment breaks the constraints
+			Arrays.fill(assignedValues, 0L);
+			for(Variable var : vars)
+			{
+				if(var.size() == 0)
+					return false;
+				if(!var.isAssigned())
+					continue;
+				int bit = var.getDomain().first() - 1;
+				long mask = 1L << bit;
+				if((assignedValues[bit >>> 6] & mask) != 0)
+					return false;
+				assignedValues[bit >>> 6] |= mask;
+			}
+
+			newlyAssigned = false;
+			for(Variable var : vars)
+			{
+				if(var.isAssigned())
+					continue;
+				var.removeValuesFromDomain(assignedValues);
+				if(var.size() == 0)
+					return false;
+				if(var.isAssigned())
+					newlyAssigned = true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * TODO: Implement naked pairs
+	 * @return
+	 */
+	public boolean propagateNakedPairs()
+	{
+		List<Variable> pairs = new ArrayList<>();
+		List<Variable> nakedPairs = new ArrayList<>(2);
+
+		for (Variable v : vars)  // get all Variables with only 2 values left in its Domain
+		{
+			if (v.isAssigned())
+				continue;
+			if (v.getDomain().size() == 2)
+				pairs.add(v);
+		}
+
+		outer:
+		for (int i = 0; i < pairs.size() - 1; i++)  // for every Variable with 2 values left in its Domain
+		{
+			for (int j = i+1; j < pairs.size(); j++)
+			{
+				if (pairs.get(i).getDomain().isSubsetOf(pairs.get(j).getDomain()))  // check if another Variable has those same 2 values left in Domain
+				{
+					nakedPairs.add(pairs.get(i));
+					nakedPairs.add(pairs.get(j));
+					break outer;
+
+				}
+			}
+		}
+
+		if (nakedPairs.size() > 0)  // if we found any naked pairs
+		{
+			Domain domain = nakedPairs.get(0).getDomain();  // both variables have the same domain, so only need to grab 1
+			for (Variable v : vars)
+			{
+				if (!v.isAssigned() && !nakedPairs.contains(v))
+					v.removeValuesFromDomain(domain);
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * TODO: Implement naked triples
+	 */
+	public boolean propagateNakedTriples()
+	{
+		ArrayList<Variable> threes = new ArrayList<>();
+		ArrayList<Variable> twos = new ArrayList<>();
+
+		for(Variable v : vars) {
+			if(v.isAssigned())
+				continue;
+			if (v.getDomain().size() == 3)
+				threes.add(v);
+			else if(v.getDomain().size() == 2)
+				twos.add(v);
+		}
+
+		ArrayList<Variable> targets = null;
+		outer:
+		for(int i = 0; i < threes.size(); i++)
+		{
+			targets = new ArrayList<>(3);
+			targets.add(threes.get(i));
+			for(int j = 0; j < threes.size(); j++)
+			{
+				if(j == i)
+					continue;
+
+				if(threes.get(j).getDomain().isSubsetOf(threes.get(i).getDomain()))
+					targets.add(threes.get(j));
+
+				if(targets.size() == 3) //found naked triple
+					break outer;
+			}
+
+			for(int j = 0; j < twos.size(); j++)
+			{
+				if(twos.get(j).getDomain().isSubsetOf(threes.get(i).getDomain()))
+					targets.add(twos.get(j));
+
+				if(targets.size() == 3) //found naked triple
+					break outer;
+			}
+		}
+
+		if(targets != null && targets.size() == 3) //Then we know this is a naked triple
+		{
+			Domain d = targets.get(0).getDomain();
+			for(Variable v : vars)
+			{
+				if(!targets.contains(v))
+					v.removeValuesFromDomain(d);
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * A value that only one variable of the constraint can still take must be
+	 * assigned to that variable. Like the other hidden rules, this takes the
+	 * constraint to hold exactly the values 1..size(), as sudoku units do.
+	 * @return false if some value can no longer be placed in the constraint, true otherwise
+	 */
+	public boolean propagateHiddenSingles()
+	{
+		if(!countOccurrences())
+			return false;
+		for(int v = 1; v <= hidden.numValues(); v++)
+		{
+			if(hidden.occurrences(v) != 1)
+				continue;
+			Variable var = vars.get(hidden.firstPosition(v));
+			if(!var.getDomain().contains(v))	//narrowed to another hidden single above
+				return false;
+			if(!var.isAssigned())
+				var.updateDomain(v);
+		}
+		return true;
+	}
+
+	/**
+	 * Two values that can only go to the same two variables remove every other
+	 * value from those variables.
+	 * @return false if some value can no longer be placed in the constraint, true otherwise
+	 */
+	public boolean propagateHiddenPairs()
+	{
+		return countOccurrences() && hidden.pairs();
+	}
+
+	/**
+	 * Three values that can only go to the same three variables remove every
+	 * other value from those variables.
+	 * @return false if some value can no longer be placed in the constraint, true otherwise
+	 */
+	public boolean propagateHiddenTriples()
+	{
+		return countOccurrences() && hidden.triples();
+	}
+
+	/**
+	 * Used for local search. Same as propagate constraint. 
+	 * @return true if constraint is consistent, false otherwise. 
+	 */
+	public boolean isConsistent()
+	{
+		return propagateConstraint();
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	/**
+	 * Counts, for each value 1..size(), the variables whose domain holds it, in one
+	 * pass over the domains, remembering the first three of them.
+	 * @return false if some value has no variable left to take it
+	 */
+	private boolean countOccurrences()
+	{
+		int n = vars.size();
+		if(hidden == null || hidden.numValues() != n)
+		{
+			hidden = new HiddenSubsets(n) {
+				boolean keepOnly(int position, int a, int b, int c)
+				{
+					return Constraint.this.keepOnly(position, a, b, c);
+				}
+			};
+		}
+		else
+		{
+			hidden.clear();
+		}
+		for(int i = 0; i < n; i++)
+		{
+			Domain d = vars.get(i).getDomain();
+			for(int v = d.first(); v != -1 && v <= n; v = d.next(v))
+				hidden.add(i, v);
+		}
+		return hidden.allPlaced();
+	}
+
+	/**
+	 * Removes every value but a, b and c from the domain of the variable at <tt>position</tt>.
+	 * @return false if the domain is now empty
+	 */
+	private boolean keepOnly(int position, int a, int b, int c)
+	{
+		Variable var = vars.get(position);
+		Domain d = var.getDomain();
+		for(int v = d.first(); v != -1; v = d.next(v))
+		{
+			if(v != a && v != b && v != c)
+				var.removeValueFromDomain(v);
+		}
+		return var.size() > 0;
+	}
+
+	//===============================================================================
+	// String representation
+	//===============================================================================
+	
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("{");
+		String delim = "";
+		for(Variable v : vars)
+		{
+			sb.append(delim).append(v.getName());
+			delim = ",";
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+
+	
+}
@@ -1,178 +1,451 @@
-package cspSolver;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-/**
- * CSP representation of the problem. Contains the variables, constraints, and 
- * many helpful accessors. 
- *
- */
-public class ConstraintNetwork {
-	
-	//===============================================================================
-	// Properties
-	//===============================================================================
-	
-	private List<Constraint> constraints;
-	private List<Variable> variables;
-	
-	//===============================================================================
-	// Constructor 
-	//===============================================================================
-	
-	public ConstraintNetwork()
-	{
-		variables = new ArrayList<Variable>();
-		constraints = new ArrayList<Constraint>();
-	}
-	
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-	
-	public void add(Constraint c)
-	{
-		if (!constraints.contains(c))
-		{
-			constraints.add(c);
-		}
-	}
-	
-	public void add(Variable v)
-	{
-		if(!variables.contains(v))
-		{
-			variables.add(v);
-		}
-	}
-	
-	/**
-	 * Used for Local Search. Assigns a value to a variable based on the parameter a
-	 * @param a Assignment to actualize 
-	 */
-	public void pushAssignment(Assignment a) {
-		a.getVariable().assignValue(a.getValue());
-	}
-	
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-	
-	public List<Constraint> getConstraints()
-	{
-		return constraints;
-	}
-	
-	public List<Variable> getVariables()
-	{
-		return variables;
-	}
-	
-	public List<Variable> getNeighborsOfVariable(Variable v)
-	{
-		Set<Variable> neighbors = new HashSet<Variable>();
-		
-		for(Constraint c : constraints)
-		{
-			if(c.contains(v))
-			{
-				neighbors.addAll(c.vars);
-			}
-		}
-		neighbors.remove(v);
-		return new ArrayList<Variable>(neighbors);
-	}
-	
-	/**
-	 * Used for local search. Determines if the current assignment is consistent.
-	 * @return
-	 */
-	public boolean isConsistent()
-	{
-		for (Constraint c : constraints)
-		{
-			if (!c.isConsistent())
-			{
-				return false;
-			}
-		}
-		return true;
-	}
-	
-	/**
-	 * @param v variable to check
-	 * @return list of constraints that contains v
-	 */
-	public List<Constraint> getConstraintsContainingVariable(Variable v)
-	{
-		List<Constraint> outList = new ArrayList<Constraint>();
-		for(Constraint c : constraints)
-		{
-			if(c.contains(v))
-			{
-				outList.add(c);
-			}
-		}
-		return outList;
-	}
-	
-	/**
-	 * Returns the constraints that contain variables whose domains were 
-	 * modified since the last call to this method. 
-	 * 
-	 * After getting the constraints, it will reset each variable to
-	 * unmodified.
-	 * 
-	 * Note* The first call to this method returns the constraints containing
-	 * the initialized variables. 
-	 * 
-	 * @return ArrayList of modified constraints
-	 */
-	public List<Constraint> getModifiedConstraints()
-	{
-		List<Constraint> mConstraints = new ArrayList<Constraint>();
-
-		for (Constraint c : constraints)
-		{
-			if (c.isModified())
-			{
-				mConstraints.add(c);
-			}
-		}
-
-		for (Variable v : getVariables())
-		{
-			v.setModified(false);
-		}
-		return mConstraints;
-	}
-
-	//===============================================================================
-	// String Representation 
-	//===============================================================================
-	
-	public String toString()
-	{
-		StringBuilder sb = new StringBuilder();
-		sb.append(variables.size() + " Variables: {");
-		String delim = "";
-		
-		for (Variable v : variables)
-		{
-			sb.append(delim).append(v.getName());
-			delim = ",";
-		}
-		sb.append("}");
-		
-		sb.append("\n" + constraints.size() + " Constraints:");
-		delim = "\n";
-		for (Constraint c: constraints)
-		{
-			sb.append(delim).append(c.toString());
-		}
-		return sb.toString();
-	}
-}
+package cspSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * CSP representation of the problem. Contains the variables, constraints, and 
+ * many helpful accessors. 
+ *
+ */
+public class ConstraintNetwork {
+	
+	//===============================================================================
+	// Properties
+	//===============================================================================
+	
+	private List<Constraint> constraints;
+	private List<Variable> variables;
+	private Trail trail;
+	
+	//adjacency index, built by buildIndex() and dropped whenever the network changes
+	private List<Variable>[] neighborsByIndex;
+	private List<Constraint>[] constraintsByIndex;
+	private int[][] neighborIndices;
+	private int[][] constraintIndices;
+	
+	//unassigned variables by domain size, built on the first call to getSmallestUnassignedVariable()
+	private DomainSizeBuckets domainSizes;
+	
+	//variables whose domains shrank to a single value, recorded once trackNewAssignments() is called
+	private int[] newAssignments;
+	private int numNewAssignments;
+
+	//every domain change that removed values, and the values it removed
+	private long numDomainReductions;
+	private long numValuesRemoved;
+	
+	//===============================================================================
+	// Constructor 
+	//===============================================================================
+	
+	public ConstraintNetwork()
+	{
+		variables = new ArrayList<Variable>();
+		constraints = new ArrayList<Constraint>();
+		trail = new Trail(this);
+	}
+	
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+	
+	public void add(Constraint c)
+	{
+		if (!constraints.contains(c))
+		{
+			constraints.add(c);
+			clearIndex();
+		}
+	}
+	
+	public void add(Variable v)
+	{
+		if(!variables.contains(v))
+		{
+			v.setNetwork(this, variables.size());
+			variables.add(v);
+			clearIndex();
+			domainSizes = null;
+		}
+	}
+	
+	/**
+	 * Precomputes, for every variable, its neighbors and the constraints containing it,
+	 * so that getNeighborsOfVariable and getConstraintsContainingVariable are served 
+	 * from a table without scanning the constraints. Called once the network is complete;
+	 * adding a variable or constraint afterwards drops the index until it is rebuilt.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void buildIndex()
+	{
+		int n = variables.size();
+		List<Constraint>[] containing = new List[n];
+		for(int i = 0; i < n; i++)
+		{
+			containing[i] = new ArrayList<Constraint>();
+		}
+		int[] numContaining = new int[n];
+		for(Constraint c : constraints)
+		{
+			for(Variable v : c.vars)
+			{
+				containing[v.getIndex()].add(c);
+				numContaining[v.getIndex()]++;
+			}
+		}
+		int[][] constraintIdx = new int[n][];
+		for(int i = 0; i < n; i++)
+		{
+			constraintIdx[i] = new int[numContaining[i]];
+			numContaining[i] = 0;
+		}
+		for(int ci = 0; ci < constraints.size(); ci++)
+		{
+			for(Variable v : constraints.get(ci).vars)
+			{
+				constraintIdx[v.getIndex()][numContaining[v.getIndex()]++] = ci;
+			}
+		}
+		
+		List<Variable>[] neighbors = new List[n];
+		int[][] indices = new int[n][];
+		for(int i = 0; i < n; i++)
+		{
+			Variable v = variables.get(i);
+			Set<Variable> seen = new HashSet<Variable>();
+			List<Variable> list = new ArrayList<Variable>();
+			for(Constraint c : containing[i])
+			{
+				for(Variable other : c.vars)
+				{
+					if(!other.equals(v) && seen.add(other))
+					{
+						list.add(other);
+					}
+				}
+			}
+			neighbors[i] = Collections.unmodifiableList(Arrays.asList(list.toArray(new Variable[list.size()])));
+			indices[i] = new int[list.size()];
+			for(int j = 0; j < indices[i].length; j++)
+			{
+				indices[i][j] = list.get(j).getIndex();
+			}
+			containing[i] = Collections.unmodifiableList(Arrays.asList(containing[i].toArray(new Constraint[containing[i].size()])));
+		}
+		
+		this.constraintsByIndex = containing;
+		this.neighborsByIndex = neighbors;
+		this.neighborIndices = indices;
+		this.constraintIndices = constraintIdx;
+	}
+	
+	private void clearIndex()
+	{
+		neighborsByIndex = null;
+		constraintsByIndex = null;
+		neighborIndices = null;
+		constraintIndices = null;
+	}
+	
+	/**
+	 * Builds the adjacency index if it has been dropped.
+	 * @return true if v belongs to this network and can be looked up in the index
+	 */
+	private boolean isIndexed(Variable v)
+	{
+		int i = v.getIndex();
+		if(i < 0 || i >= variables.size() || variables.get(i) != v)
+		{
+			return false;
+		}
+		if(neighborsByIndex == null)
+		{
+			buildIndex();
+		}
+		return true;
+	}
+	
+	/**
+	 * Used for Local Search. Assigns a value to a variable based on the parameter a
+	 * @param a Assignment to actualize 
+	 */
+	public void pushAssignment(Assignment a) {
+		a.getVariable().assignValue(a.getValue());
+	}
+	
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+	
+	public List<Constraint> getConstraints()
+	{
+		return constraints;
+	}
+	
+	public List<Variable> getVariables()
+	{
+		return variables;
+	}
+	
+	/**
+	 * @return the trail recording domain changes to this network's variables
+	 */
+	public Trail getTrail()
+	{
+		return trail;
+	}
+	
+	/**
+	 * @return number of times a domain lost values, by an assignment or by propagation
+	 */
+	public long getNumDomainReductions()
+	{
+		return numDomainReductions;
+	}
+	
+	/**
+	 * @return number of values removed from domains in total
+	 */
+	public long getNumValuesRemoved()
+	{
+		return numValuesRemoved;
+	}
+	
+	public Variable getVariable(int index)
+	{
+		return variables.get(index);
+	}
+	
+	/**
+	 * @param v variable to check
+	 * @return the variables sharing a constraint with v. The list must not be modified.
+	 */
+	public List<Variable> getNeighborsOfVariable(Variable v)
+	{
+		if(isIndexed(v))
+		{
+			return neighborsByIndex[v.getIndex()];
+		}
+		
+		Set<Variable> neighbors = new HashSet<Variable>();
+		
+		for(Constraint c : constraints)
+		{
+			if(c.contains(v))
+			{
+				neighbors.addAll(c.vars);
+			}
+		}
+		neighbors.remove(v);
+		return new ArrayList<Variable>(neighbors);
+	}
+	
+	/**
+	 * Used for the minimum remaining values heuristic. The variables are kept in 
+	 * buckets by domain size, updated as their domains change, so no scan is needed.
+	 * @return an unassigned variable with the smallest domain, null if all variables are assigned
+	 */
+	public Variable getSmallestUnassignedVariable()
+	{
+		if(domainSizes == null)
+		{
+			int maxSize = 0;
+			for(Variable v : variables)
+			{
+				maxSize = Math.max(maxSize, v.size());
+			}
+			domainSizes = new DomainSizeBuckets(variables.size(), maxSize);
+			for(Variable v : variables)
+			{
+				domainSizes.update(v.getIndex(), v.size());
+			}
+		}
+		int smallest = domainSizes.smallest();
+		return smallest == -1 ? null : variables.get(smallest);
+	}
+	
+	/**
+	 * Called by a variable of this network whenever its domain changes.
+	 * @param removed number of values the change removed, negative if it added values back
+	 */
+	void domainSizeChanged(Variable v, int removed)
+	{
+		if(removed > 0)
+		{
+			numDomainReductions++;
+			numValuesRemoved += removed;
+		}
+		if(domainSizes != null)
+		{
+			domainSizes.update(v.getIndex(), v.size());
+		}
+		if(newAssignments != null && v.size() == 1)
+		{
+			if(numNewAssignments == newAssignments.length)
+			{
+				newAssignments = Arrays.copyOf(newAssignments, numNewAssignments * 2);
+			}
+			newAssignments[numNewAssignments++] = v.getIndex();
+		}
+	}
+	
+	/**
+	 * Used by incremental propagation. From now on, every variable whose domain 
+	 * shrinks to a single value is recorded until polled. The variables that are 
+	 * already assigned are recorded right away.
+	 */
+	public void trackNewAssignments()
+	{
+		newAssignments = new int[Math.max(16, variables.size())];
+		numNewAssignments = 0;
+		for(Variable v : variables)
+		{
+			if(v.isAssigned())
+			{
+				newAssignments[numNewAssignments++] = v.getIndex();
+			}
+		}
+	}
+	
+	/**
+	 * @return index of a variable that became assigned since it was last polled, -1 if there is none
+	 */
+	public int pollNewAssignment()
+	{
+		return numNewAssignments == 0 ? -1 : newAssignments[--numNewAssignments];
+	}
+	
+	/**
+	 * Forgets the recorded assignments, e.g. after propagating them failed.
+	 */
+	public void clearNewAssignments()
+	{
+		numNewAssignments = 0;
+	}
+	
+	/**
+	 * Used for local search. Determines if the current assignment is consistent.
+	 * @return
+	 */
+	public boolean isConsistent()
+	{
+		for (Constraint c : constraints)
+		{
+			if (!c.isConsistent())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param index index of a variable in this network
+	 * @return indices of the variables sharing a constraint with it. The array must not be modified.
+	 */
+	public int[] getNeighborIndices(int index)
+	{
+		if(neighborIndices == null)
+		{
+			buildIndex();
+		}
+		return neighborIndices[index];
+	}
+	
+	/**
+	 * @param index index of a variable in this network
+	 * @return positions in getConstraints() of the constraints containing it. The array must not be modified.
+	 */
+	public int[] getConstraintIndices(int index)
+	{
+		if(constraintIndices == null)
+		{
+			buildIndex();
+		}
+		return constraintIndices[index];
+	}
+	
+	/**
+	 * @param v variable to check
+	 * @return list of constraints that contains v. The list must not be modified.
+	 */
+	public List<Constraint> getConstraintsContainingVariable(Variable v)
+	{
+		if(isIndexed(v))
+		{
+			return constraintsByIndex[v.getIndex()];
+		}
+		
+		List<Constraint> outList = new ArrayList<Constraint>();
+		for(Constraint c : constraints)
+		{
+			if(c.contains(v))
+			{
+				outList.add(c);
+			}
+		}
+		return outList;
+	}
+	
+	/**
+	 * Returns the constraints that contain variables whose domains were 
+	 * modified since the last call to this method. 
+	 * 
+	 * After getting the constraints, it will reset each variable to
+	 * unmodified.
+	 * 
+	 * Note* The first call to this method returns the constraints containing
+	 * the initialized variables. 
+	 * 
+	 * @return ArrayList of modified constraints
+	 */
+	public List<Constraint> getModifiedConstraints()
+	{
+		List<Constraint> mConstraints = new ArrayList<Constraint>();
+
+		for (Constraint c : constraints)
+		{
+			if (c.isModified())
+			{
+				mConstraints.add(c);
+			}
+		}
+
+		for (Variable v : getVariables())
+		{
+			v.setModified(false);
+		}
+		return mConstraints;
+	}
+
+	//===============================================================================
+	// String Representation 
+	//===============================================================================
+	
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append(variables.size() + " Variables: {");
+		String delim = "";
+		
+		for (Variable v : variables)
+		{
+			sb.append(delim).append(v.getName());
+			delim = ",";
+		}
+		sb.append("}");
+		
+		sb.append("\n" + constraints.size() + " Constraints:");
+		delim = "\n";
+		for (Constraint c: constraints)
+		{
+			sb.append(delim).append(c.toString());
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,503 @@
+package cspSolver;
+
+import sudoku.SudokuFile;
+
+/**
+ * Solves sudoku as an exact cover problem with Knuth's Algorithm X on dancing
+ * links. Every candidate (cell, value) is a row covering four columns: the cell,
+ * the value in its row, the value in its column and the value in its block.
+ * A solution is a set of rows covering every column exactly once.
+ *
+ * The links live in parallel int arrays rather than node objects, and the
+ * search keeps its own stack of chosen rows instead of recursing, so large
+ * boards neither allocate during the search nor grow the call stack.
+ * Columns are chosen by fewest remaining rows, which covers hidden singles as
+ * well as naked ones.
+ *
+ * Works for any N = p*q. Assignments count the rows chosen during the search
+ * (the nodes visited) and backtracks the rows taken back.
+ *
+ * @see BTSolver
+ */
+public class DLXSolver implements Solver{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private static final int ROOT = 0;
+
+	private final SudokuFile sudokuGrid;
+	private final int n;
+	private final int p;
+	private final int q;
+	private SudokuFile solution;
+	private boolean hasSolution = false;
+
+	private int numAssignments;
+	private int numBacktracks;
+	private long solutionLimit = 1;		//solutions to find before stopping, 0 for all of them
+	private long numSolutions;
+	private long startTime;
+	private long endTime;
+	private volatile boolean cancelled;
+	private boolean stopped;		//true if the last solve was cancelled before it finished
+
+	//dancing links; nodes 1..numColumns are the column headers
+	private int[] left;
+	private int[] right;
+	private int[] up;
+	private int[] down;
+	private int[] column;		//column header of each node
+	private int[] candidate;	//cell * n + value - 1 of each node's row
+	private int[] columnSize;	//rows left in each column, indexed by header
+	private int numNodes;
+
+	private boolean consistent;	//false if the initial values already conflict
+	private int[] chosen;		//node of the row chosen at each search level
+	private int numGiven;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	public DLXSolver(SudokuFile sf)
+	{
+		this.sudokuGrid = sf;
+		this.n = sf.getN();
+		this.p = sf.getP();
+		this.q = sf.getQ();
+		buildMatrix(sf.getBoard());
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * Stops a running solve at the next node it visits.
+	 */
+	@Override
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * @return true if a solution has been found, false otherwise.
+	 */
+	public boolean hasSolution()
+	{
+		return hasSolution;
+	}
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	public SudokuFile getSolution()
+	{
+		return hasSolution ? solution : sudokuGrid;
+	}
+
+	public void printSolverStats()
+	{
+		System.out.println("Time taken:" + (endTime-startTime) + " ms");
+		System.out.println("Number of nodes: " + numAssignments);
+		System.out.println("Number of backtracks: " + numBacktracks);
+	}
+
+	/**
+	 * @return time taken by the solver in milliseconds
+	 */
+	public long getTimeTaken()
+	{
+		return endTime-startTime;
+	}
+
+	/**
+	 * @return number of rows chosen during the search
+	 */
+	public int getNumAssignments()
+	{
+		return numAssignments;
+	}
+
+	public int getNumBacktracks()
+	{
+		return numBacktracks;
+	}
+
+	/**
+	 * @return the outcome and statistics of the last solve
+	 */
+	public SolveResult getResult()
+	{
+		SolveResult.Status status = hasSolution ? SolveResult.Status.Solved : stopped ? SolveResult.Status.Cancelled : SolveResult.Status.NoSolution;
+		return new SolveResult(status, hasSolution, getSolution(), (endTime - startTime) * 1000000, numAssignments, numBacktracks);
+	}
+
+	/**
+	 * @return number of solutions found so far
+	 */
+	public long getNumSolutions()
+	{
+		return numSolutions;
+	}
+
+	//===============================================================================
+	// Exact Cover Matrix
+	//===============================================================================
+
+	/**
+	 * Builds the matrix with one row per value each cell may still take, then
+	 * selects the rows of the initial values. Values ruled out by an initial
+	 * value get no row at all, which keeps the matrix small for easy puzzles.
+	 */
+	private void buildMatrix(int[][] board)
+	{
+		int cells = n * n;
+		int numColumns = 4 * cells;
+		boolean[] taken = new boolean[numColumns];	//value columns used by an initial value
+		int numRows = 0;
+		consistent = true;
+		for(int i = 0; i < n; i++)
+		{
+			for(int j = 0; j < n; j++)
+			{
+				int v = board[i][j];
+				if(v == 0)
+				{
+					continue;
+				}
+				if(v < 1 || v > n)
+				{
+					consistent = false;
+					continue;
+				}
+				int cell = i * n + j;
+				for(int c : new int[] {rowColumn(i, v), colColumn(j, v), blockColumn(i, j, v)})
+				{
+					if(taken[c])
+					{
+						consistent = false;
+					}
+					taken[c] = true;
+				}
+				taken[cell] = true;
+			}
+		}
+		for(int i = 0; i < n; i++)
+		{
+			for(int j = 0; j < n; j++)
+			{
+				if(board[i][j] != 0)
+				{
+					numRows++;
+					continue;
+				}
+				for(int v = 1; v <= n; v++)
+				{
+					if(!taken[rowColumn(i, v)] && !taken[colColumn(j, v)] && !taken[blockColumn(i, j, v)])
+					{
+						numRows++;
+					}
+				}
+			}
+		}
+
+		int capacity = 1 + numColumns + 4 * numRows;
+		left = new int[capacity];
+		right = new int[capacity];
+		up = new int[capacity];
+		down = new int[capacity];
+		column = new int[capacity];
+		candidate = new int[capacity];
+		columnSize = new int[1 + numColumns];
+		for(int h = 0; h <= numColumns; h++)
+		{
+			left[h] = h == 0 ? numColumns : h - 1;
+			right[h] = h == numColumns ? 0 : h + 1;
+			up[h] = h;
+			down[h] = h;
+			column[h] = h;
+		}
+		numNodes = numColumns + 1;
+
+		int[] givenRows = new int[cells];
+		numGiven = 0;
+		for(int i = 0; i < n; i++)
+		{
+			for(int j = 0; j < n; j++)
+			{
+				int given = board[i][j];
+				if(given < 0 || given > n)
+				{
+					continue;
+				}
+				for(int v = 1; v <= n; v++)
+				{
+					if(given == 0 ? taken[rowColumn(i, v)] || taken[colColumn(j, v)] || taken[blockColumn(i, j, v)] : v != given)
+					{
+						continue;
+					}
+					int first = addRow(i, j, v);
+					if(given != 0)
+					{
+						givenRows[numGiven++] = first;
+					}
+				}
+			}
+		}
+
+		chosen = new int[cells];
+		if(consistent)
+		{
+			for(int g = 0; g < numGiven; g++)
+			{
+				int node = givenRows[g];
+				cover(column[node]);
+				select(node);
+				chosen[g] = node;
+			}
+		}
+	}
+
+	/**
+	 * Appends the row of candidate (i, j) = v.
+	 * @return the row's node in the cell column
+	 */
+	private int addRow(int i, int j, int v)
+	{
+		int first = numNodes;
+		int[] columns = {i * n + j, rowColumn(i, v), colColumn(j, v), blockColumn(i, j, v)};
+		for(int k = 0; k < 4; k++)
+		{
+			int node = numNodes++;
+			int header = columns[k] + 1;
+			column[node] = header;
+			candidate[node] = (i * n + j) * n + v - 1;
+			up[node] = up[header];
+			down[node] = header;
+			down[up[header]] = node;
+			up[header] = node;
+			columnSize[header]++;
+			left[node] = k == 0 ? first + 3 : node - 1;
+			right[node] = k == 3 ? first : node + 1;
+		}
+		return first;
+	}
+
+	private int rowColumn(int i, int v)
+	{
+		return n * n + i * n + v - 1;
+	}
+
+	private int colColumn(int j, int v)
+	{
+		return 2 * n * n + j * n + v - 1;
+	}
+
+	private int blockColumn(int i, int j, int v)
+	{
+		return 3 * n * n + (i / p * p + j / q) * n + v - 1;
+	}
+
+	//===============================================================================
+	// Dancing Links
+	//===============================================================================
+
+	private void cover(int c)
+	{
+		right[left[c]] = right[c];
+		left[right[c]] = left[c];
+		for(int i = down[c]; i != c; i = down[i])
+		{
+			for(int j = right[i]; j != i; j = right[j])
+			{
+				up[down[j]] = up[j];
+				down[up[j]] = down[j];
+				columnSize[column[j]]--;
+			}
+		}
+	}
+
+	private void uncover(int c)
+	{
+		for(int i = up[c]; i != c; i = up[i])
+		{
+			for(int j = left[i]; j != i; j = left[j])
+			{
+				columnSize[column[j]]++;
+				up[down[j]] = j;
+				down[up[j]] = j;
+			}
+		}
+		right[left[c]] = c;
+		left[right[c]] = c;
+	}
+
+	/**
+	 * Covers the other columns of the row of <tt>node</tt>, whose own column is already covered.
+	 */
+	private void select(int node)
+	{
+		for(int j = right[node]; j != node; j = right[j])
+		{
+			cover(column[j]);
+		}
+	}
+
+	private void unselect(int node)
+	{
+		for(int j = left[node]; j != node; j = left[j])
+		{
+			uncover(column[j]);
+		}
+	}
+
+	/**
+	 * @return the uncovered column with the fewest rows, ROOT if every column is covered
+	 */
+	private int smallestColumn()
+	{
+		int best = ROOT;
+		int bestSize = Integer.MAX_VALUE;
+		for(int c = right[ROOT]; c != ROOT; c = right[c])
+		{
+			if(columnSize[c] < bestSize)
+			{
+				best = c;
+				bestSize = columnSize[c];
+				if(bestSize <= 1)
+				{
+					break;
+				}
+			}
+		}
+		return best;
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	/**
+	 * Runs Algorithm X with an explicit stack. chosen[level] holds the row taken at each
+	 * level below the initial values; on a dead end the deepest row is swapped for the
+	 * next row of its column, and the column is uncovered once its rows run out.
+	 * A solution counts as a dead end too until the solution limit is reached.
+	 */
+	private void search()
+	{
+		int level = numGiven;
+		boolean descend = true;
+		while(true)
+		{
+			if(cancelled || Thread.currentThread().isInterrupted())
+			{
+				stopped = true;
+				return;
+			}
+			if(descend)
+			{
+				int c = smallestColumn();
+				if(c == ROOT)
+				{
+					if(numSolutions++ == 0)
+					{
+						success();
+					}
+					if(solutionLimit != 0 && numSolutions >= solutionLimit)
+					{
+						return;
+					}
+				}
+				else if(columnSize[c] > 0)
+				{
+					cover(c);
+					int node = down[c];
+					select(node);
+					chosen[level++] = node;
+					numAssignments++;
+					continue;
+				}
+			}
+
+			//backtrack to the deepest row that has a next sibling
+			descend = false;
+			while(level > numGiven)
+			{
+				int node = chosen[--level];
+				unselect(node);
+				numBacktracks++;
+				int next = down[node];
+				if(next != column[node])
+				{
+					select(next);
+					chosen[level++] = next;
+					numAssignments++;
+					descend = true;
+					break;
+				}
+				uncover(column[node]);
+			}
+			if(!descend)
+			{
+				return;
+			}
+		}
+	}
+
+	private void success()
+	{
+		int[][] board = new int[n][n];
+		for(int level = 0; level < n * n; level++)
+		{
+			int cell = candidate[chosen[level]] / n;
+			board[cell / n][cell % n] = candidate[chosen[level]] % n + 1;
+		}
+		solution = new SudokuFile(n, p, q, board);
+		hasSolution = true;
+	}
+
+	/**
+	 * Counts the solutions of the puzzle, stopping as soon as <tt>limit</tt> of them
+	 * have been found, so a limit of 2 is a fast uniqueness check. The first
+	 * solution found is kept and returned by getSolution().
+	 * @param limit most solutions to look for, 0 to count them all
+	 * @return number of solutions found, a lower bound if the search was cancelled
+	 */
+	public long countSolutions(long limit)
+	{
+		solutionLimit = limit;
+		solve();
+		return numSolutions;
+	}
+
+	public void solve()
+	{
+		startTime = System.currentTimeMillis();
+		stopped = false;
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		if(consistent)
+		{
+			search();
+		}
+		endTime = System.currentTimeMillis();
+		if(event.isEnabled())
+		{
+			event.finish("DLXSolver", solutionLimit == 0 ? "All solutions" : solutionLimit == 1 ? "First solution" : "Up to " + solutionLimit + " solutions", n, numAssignments, numBacktracks,
+					hasSolution ? SolveEvent.SOLVED : stopped ? SolveEvent.CANCELLED : SolveEvent.NO_SOLUTION);
+		}
+	}
+
+	@Override
+	public void run() {
+		solve();
+	}
+}
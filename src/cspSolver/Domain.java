@@ -1,198 +1,470 @@
-package cspSolver;
-
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-/**
- * Represents the domain of a variable, i.e. the possible values that each
- * variable may assign. 
- */
-public class Domain implements Iterable<Integer>{
-	
-	//===============================================================================
-	// Properties
-	//===============================================================================
-	
-	private ArrayList<Integer> values = new ArrayList<Integer>();
-	private boolean modified;
-	
-	//===============================================================================
-	// Constructors
-	//===============================================================================
-	
-	/**
-	 * Constructs a domain with a single value
-	 * @param value the sole value within the domain
-	 */
-	public Domain(int value)
-	{
-		values.add(value);
-	}
-	
-	/**
-	 * Constructs a domain with an array of values
-	 * @param values all possible values for the domain
-	 */
-	public Domain(int[] values)
-	{
-		for(int i = 0; i < values.length; i++)
-		{
-			this.values.add(values[i]);
-		}
-	}
-	
-	/**
-	 * Constructs a domain with an ArrayList<Integer> of values
-	 * @param values all possible values for the domain
-	 */
-	public Domain(List<Integer> values)
-	{
-		this.values.clear();
-		this.values.addAll(values);
-	}
-	
-	/**
-	 * Copy Constructor. Used to keep a copy of assignments in the Trail.
-	 * @param d the domain to copy
-	 * @see Trail
-	 */
-	public Domain(Domain d)
-	{
-		for(Integer value : d.getValues())
-		{
-			this.values.add(value);
-		}
-	}
-	
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-	
-	/**
-	 * *Note, Domain is iterable. You can use
-	 * 	for(Integer i : Domain)
-	 *  {
-	 *  	...
-	 *  }
-	 *  
-	 * @return ArrayList of values in Domain
-	 */
-	public ArrayList<Integer> getValues()
-	{
-		return values;
-	}
-	
-	/**
-	 * Checks if a value exists within the domain
-	 * @param value to check
-	 * @return true if <tt>value</tt> exists within the domain, false otherwise.
-	 */
-	public boolean contains(int value)
-	{
-		if (values.contains(value))
-		{
-			return true;
-		}
-		return false;
-	}
-	
-	/** 
-	 * @return number of values in the domain
-	 */
-	public int size()
-	{
-		return values.size();
-	}
-	
-	/**
-	 * @return true if no values are contained in the domain. 
-	 */
-	public boolean isEmpty()
-	{
-		return values.isEmpty();
-	}
-	
-	/**
-	 * Returns whether or not the domain has been modified.
-	 * 
-	 * @return true if the domain has been modified
-	 */
-	public boolean isModified()
-	{
-		return modified;
-	}
-	
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-
-	/**
-	 * Removes <tt>value</tt> from the domain.
-	 * @param value the int to be removed
-	 */
-	public boolean remove(int value)
-	{
-		Integer v = value;
-		
-		if(!contains(value))
-		{
-			return false;
-		}
-		
-		setModified(true);
-		values.remove(v);
-		return true;
-	}
-
-	public boolean isSubsetOf(Domain domain)
-	{
-		for (int val : this) {
-			if (!domain.contains(val))
-				return false;
-		}
-		return true;
-	}
-
-	public void removeDomain(Domain domain)
-	{
-		for(int val : domain)
-			remove(val);
-	}
-	
-	/**
-	 * Sets modified flag.
-	 * @param modified value to set the modified flag. 
-	 */
-	public void setModified(boolean modified)
-	{
-		this.modified = modified;
-	}
-
-	//===============================================================================
-	// Iterator
-	//===============================================================================
-	
-	@Override
-	public Iterator<Integer> iterator() {
-		return values.iterator();
-	}
-	
-	//===============================================================================
-	// String representation
-	//===============================================================================
-	
-	public String toString()
-	{
-		StringBuilder sb = new StringBuilder("{");
-		String delim = "";
-		for (Integer i : values)
-		{
-			sb.append(delim).append(i);
-			delim = ",";
-		}
-		sb.append("}");
-		return sb.toString();
-	}
-}
-
+package cspSolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Represents the domain of a variable, i.e. the possible values that each
+ * variable may assign.
+ *
+ * Values are stored as a bitset, value v being bit v-1. Domains whose values
+ * all fit within 1..64 are held in a single long; larger domains spill into
+ * a long[] of words.
+ */
+public class Domain implements Iterable<Integer>{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private static final int WORD_BITS = 64;
+
+	private long bits;		//used when words == null
+	private long[] words;	//used for domains containing values above 64
+	private int size;
+	private boolean modified;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * Constructs a domain with a single value
+	 * @param value the sole value within the domain
+	 */
+	public Domain(int value)
+	{
+		add(value);
+	}
+
+	/**
+	 * Constructs a domain with an array of values
+	 * @param values all possible values for the domain
+	 */
+	public Domain(int[] values)
+	{
+		for(int i = 0; i < values.length; i++)
+		{
+			add(values[i]);
+		}
+	}
+
+	/**
+	 * Constructs a domain with an ArrayList<Integer> of values
+	 * @param values all possible values for the domain
+	 */
+	public Domain(List<Integer> values)
+	{
+		for(Integer value : values)
+		{
+			add(value);
+		}
+	}
+
+	/**
+	 * Copy Constructor. Used to keep a copy of assignments in the Trail.
+	 * @param d the domain to copy
+	 * @see Trail
+	 */
+	public Domain(Domain d)
+	{
+		this.bits = d.bits;
+		this.words = d.words == null ? null : d.words.clone();
+		this.size = d.size;
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * *Note, Domain is iterable. You can use
+	 * 	for(Integer i : Domain)
+	 *  {
+	 *  	...
+	 *  }
+	 *
+	 * The returned list is a snapshot; changing it does not change the domain.
+	 *
+	 * @return ArrayList of values in Domain, lowest to highest
+	 */
+	public ArrayList<Integer> getValues()
+	{
+		ArrayList<Integer> values = new ArrayList<Integer>(size);
+		for(int v = first(); v != -1; v = next(v))
+		{
+			values.add(v);
+		}
+		return values;
+	}
+
+	/**
+	 * Checks if a value exists within the domain
+	 * @param value to check
+	 * @return true if <tt>value</tt> exists within the domain, false otherwise.
+	 */
+	public boolean contains(int value)
+	{
+		if(value < 1)
+		{
+			return false;
+		}
+		int bit = value - 1;
+		if(words == null)
+		{
+			return bit < WORD_BITS && (bits & (1L << bit)) != 0;
+		}
+		int w = bit >>> 6;
+		return w < words.length && (words[w] & (1L << bit)) != 0;
+	}
+
+	/**
+	 * @return number of values in the domain
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return true if no values are contained in the domain.
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns whether or not the domain has been modified.
+	 *
+	 * @return true if the domain has been modified
+	 */
+	public boolean isModified()
+	{
+		return modified;
+	}
+
+	/**
+	 * @return the lowest value in the domain, -1 if the domain is empty
+	 */
+	public int first()
+	{
+		return next(0);
+	}
+
+	/**
+	 * @param value a value, not necessarily in the domain
+	 * @return the lowest value in the domain greater than <tt>value</tt>, -1 if there is none
+	 */
+	public int next(int value)
+	{
+		int bit = value < 0 ? 0 : value;	//bit index of value + 1
+		if(words == null)
+		{
+			if(bit >= WORD_BITS)
+			{
+				return -1;
+			}
+			long rest = bits & (-1L << bit);
+			return rest == 0 ? -1 : Long.numberOfTrailingZeros(rest) + 1;
+		}
+		int w = bit >>> 6;
+		if(w >= words.length)
+		{
+			return -1;
+		}
+		long rest = words[w] & (-1L << bit);
+		while(rest == 0)
+		{
+			if(++w == words.length)
+			{
+				return -1;
+			}
+			rest = words[w];
+		}
+		return w * WORD_BITS + Long.numberOfTrailingZeros(rest) + 1;
+	}
+
+	/**
+	 * @return number of longs backing this domain
+	 */
+	int wordCount()
+	{
+		return words == null ? 1 : words.length;
+	}
+
+	/**
+	 * @param w word index
+	 * @return the bits of values w*64+1 .. w*64+64
+	 */
+	long word(int w)
+	{
+		if(words == null)
+		{
+			return w == 0 ? bits : 0L;
+		}
+		return w < words.length ? words[w] : 0L;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * Removes <tt>value</tt> from the domain.
+	 * @param value the int to be removed
+	 */
+	public boolean remove(int value)
+	{
+		if(!contains(value))
+		{
+			return false;
+		}
+
+		int bit = value - 1;
+		if(words == null)
+		{
+			bits &= ~(1L << bit);
+		}
+		else
+		{
+			words[bit >>> 6] &= ~(1L << bit);
+		}
+		size--;
+		setModified(true);
+		return true;
+	}
+
+	public boolean isSubsetOf(Domain domain)
+	{
+		if(words == null && domain.words == null)
+		{
+			return (bits & ~domain.bits) == 0;
+		}
+		for(int w = 0; w < wordCount(); w++)
+		{
+			if((word(w) & ~domain.word(w)) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	public void removeDomain(Domain domain)
+	{
+		if(words == null)
+		{
+			long removed = bits & domain.word(0);
+			if(removed != 0)
+			{
+				bits &= ~removed;
+				size -= Long.bitCount(removed);
+				setModified(true);
+			}
+			return;
+		}
+		int removedCount = 0;
+		for(int w = 0; w < words.length; w++)
+		{
+			long removed = words[w] & domain.word(w);
+			words[w] &= ~removed;
+			removedCount += Long.bitCount(removed);
+		}
+		if(removedCount > 0)
+		{
+			size -= removedCount;
+			setModified(true);
+		}
+	}
+
+	/**
+	 * @param values bitset of values, bit v-1 standing for v
+	 * @return true if the domain holds any of the values
+	 */
+	boolean intersects(long[] values)
+	{
+		int count = Math.min(wordCount(), values.length);
+		for(int w = 0; w < count; w++)
+		{
+			if((word(w) & values[w]) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes every value of a bitset from the domain.
+	 * @param values bitset of values, bit v-1 standing for v
+	 */
+	void removeWords(long[] values)
+	{
+		if(words == null)
+		{
+			long removed = bits & values[0];
+			if(removed != 0)
+			{
+				bits &= ~removed;
+				size -= Long.bitCount(removed);
+				setModified(true);
+			}
+			return;
+		}
+		int removedCount = 0;
+		int count = Math.min(words.length, values.length);
+		for(int w = 0; w < count; w++)
+		{
+			long removed = words[w] & values[w];
+			words[w] &= ~removed;
+			removedCount += Long.bitCount(removed);
+		}
+		if(removedCount > 0)
+		{
+			size -= removedCount;
+			setModified(true);
+		}
+	}
+
+	/**
+	 * Narrows the domain to a single value, reusing its storage.
+	 * @param value the sole value left in the domain
+	 */
+	void setSingleValue(int value)
+	{
+		if(words == null && value - 1 < WORD_BITS)
+		{
+			bits = 0L;
+		}
+		else if(words != null)
+		{
+			Arrays.fill(words, 0L);
+		}
+		size = 0;
+		add(value);
+		setModified(true);
+	}
+
+	/**
+	 * Overwrites the domain with words previously read through word(int).
+	 * Used by the Trail to restore a domain on undo.
+	 * @param src array holding the words
+	 * @param offset index of the first word
+	 * @param count number of words
+	 */
+	void setWords(long[] src, int offset, int count)
+	{
+		int total = 0;
+		if(words == null && count == 1)
+		{
+			bits = src[offset];
+			total = Long.bitCount(bits);
+		}
+		else
+		{
+			if(words == null || words.length < count)
+			{
+				words = new long[count];
+			}
+			for(int w = 0; w < words.length; w++)
+			{
+				words[w] = w < count ? src[offset + w] : 0L;
+				total += Long.bitCount(words[w]);
+			}
+		}
+		size = total;
+	}
+
+	/**
+	 * Sets modified flag.
+	 * @param modified value to set the modified flag.
+	 */
+	public void setModified(boolean modified)
+	{
+		this.modified = modified;
+	}
+
+	/**
+	 * Adds a value while constructing the domain.
+	 */
+	private void add(int value)
+	{
+		if(value < 1)
+		{
+			throw new IllegalArgumentException("Domain values must be positive: " + value);
+		}
+		int bit = value - 1;
+		if(words == null && bit >= WORD_BITS)
+		{
+			words = new long[] { bits };
+		}
+		if(words == null)
+		{
+			if((bits & (1L << bit)) == 0)
+			{
+				bits |= 1L << bit;
+				size++;
+			}
+			return;
+		}
+		int w = bit >>> 6;
+		if(w >= words.length)
+		{
+			long[] grown = new long[w + 1];
+			System.arraycopy(words, 0, grown, 0, words.length);
+			words = grown;
+		}
+		if((words[w] & (1L << bit)) == 0)
+		{
+			words[w] |= 1L << bit;
+			size++;
+		}
+	}
+
+	//===============================================================================
+	// Iterator
+	//===============================================================================
+
+	/**
+	 * Iterates the values from lowest to highest. Use nextInt() to avoid boxing.
+	 */
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			private int nextValue = first();
+
+			@Override
+			public boolean hasNext() {
+				return nextValue != -1;
+			}
+
+			@Override
+			public int nextInt() {
+				if(nextValue == -1)
+				{
+					throw new NoSuchElementException();
+				}
+				int value = nextValue;
+				nextValue = Domain.this.next(value);
+				return value;
+			}
+		};
+	}
+
+	//===============================================================================
+	// String representation
+	//===============================================================================
+
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("{");
+		String delim = "";
+		for(int v = first(); v != -1; v = next(v))
+		{
+			sb.append(delim).append(v);
+			delim = ",";
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+}
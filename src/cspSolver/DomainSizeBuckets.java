@@ -0,0 +1,139 @@
+package cspSolver;
+
+import java.util.Arrays;
+
+/**
+ * Bucket queue of the unassigned variables of a network, keyed by domain size.
+ * Each bucket is a bitset over variable indices, and a bitmask of non-empty
+ * buckets finds the smallest domain without scanning the variables. Within a
+ * bucket the lowest index wins, which is the variable a linear scan would pick.
+ * Variables with a domain of size 1 are assigned and are not queued.
+ *
+ * Kept up to date by Variable whenever its domain changes, including when the
+ * Trail restores it.
+ *
+ * @see BTSolver
+ */
+class DomainSizeBuckets {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final int wordsPerBucket;
+	private long[][] members;		//bit v of members[s] set if variable v has a domain of size s
+	private int[] count;			//number of variables in each bucket
+	private long[] nonEmpty;		//bit s set if bucket s holds a variable
+	private final int[] bucketOf;	//bucket of each variable, -1 if not queued
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * @param numVariables number of variables in the network
+	 * @param maxSize largest domain size expected
+	 */
+	DomainSizeBuckets(int numVariables, int maxSize)
+	{
+		wordsPerBucket = (numVariables + 63) / 64;
+		bucketOf = new int[numVariables];
+		Arrays.fill(bucketOf, -1);
+		allocateBuckets(maxSize + 1);
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * @return index of the first variable with the smallest domain other than 1, -1 if every variable is assigned
+	 */
+	int smallest()
+	{
+		for(int w = 0; w < nonEmpty.length; w++)
+		{
+			if(nonEmpty[w] != 0)
+			{
+				long[] bucket = members[w * 64 + Long.numberOfTrailingZeros(nonEmpty[w])];
+				for(int i = 0; i < wordsPerBucket; i++)
+				{
+					if(bucket[i] != 0)
+					{
+						return i * 64 + Long.numberOfTrailingZeros(bucket[i]);
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * Moves a variable to the bucket of its new domain size.
+	 * @param var index of the variable
+	 * @param size current size of its domain
+	 */
+	void update(int var, int size)
+	{
+		int bucket = size == 1 ? -1 : size;
+		int old = bucketOf[var];
+		if(old == bucket)
+		{
+			return;
+		}
+		if(old != -1)
+		{
+			members[old][var >>> 6] &= ~(1L << var);
+			if(--count[old] == 0)
+			{
+				nonEmpty[old >>> 6] &= ~(1L << old);
+			}
+		}
+		if(bucket != -1)
+		{
+			if(bucket >= members.length)
+			{
+				allocateBuckets(bucket + 1);
+			}
+			members[bucket][var >>> 6] |= 1L << var;
+			if(count[bucket]++ == 0)
+			{
+				nonEmpty[bucket >>> 6] |= 1L << bucket;
+			}
+		}
+		bucketOf[var] = bucket;
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	/**
+	 * Grows the bucket arrays to hold at least <tt>numBuckets</tt> buckets, keeping their contents.
+	 */
+	private void allocateBuckets(int numBuckets)
+	{
+		long[][] newMembers = new long[numBuckets][];
+		int[] newCount = new int[numBuckets];
+		long[] newNonEmpty = new long[(numBuckets + 63) / 64];
+		int kept = 0;
+		if(members != null)
+		{
+			kept = members.length;
+			System.arraycopy(members, 0, newMembers, 0, kept);
+			System.arraycopy(count, 0, newCount, 0, kept);
+			System.arraycopy(nonEmpty, 0, newNonEmpty, 0, nonEmpty.length);
+		}
+		for(int s = kept; s < numBuckets; s++)
+		{
+			newMembers[s] = new long[wordsPerBucket];
+		}
+		members = newMembers;
+		count = newCount;
+		nonEmpty = newNonEmpty;
+	}
+}
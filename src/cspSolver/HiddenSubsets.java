@@ -0,0 +1,187 @@
+package cspSolver;
+
+import java.util.Arrays;
+
+/**
+ * Search for hidden singles, pairs and triples in one unit of n variables that
+ * must take the values 1..n between them. The caller records which positions
+ * of the unit can still take each value with add(), then calls pairs() or
+ * triples(), which narrow the domains found through keepOnly().
+ *
+ * Positions are whatever the caller identifies its variables by, such as the
+ * index in a Constraint or a cell of a CompactBoard. Only the first three
+ * positions of each value are kept, which is all the rules need.
+ *
+ * @see Constraint
+ * @see CompactBTSolver
+ */
+abstract class HiddenSubsets {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final int[] occurrences;		//number of positions holding each value
+	private final int[] positions;			//the first three of those positions for each value
+	private final int[] values;
+	private final int[] subset = new int[3];
+
+	/**
+	 * @param n number of values, which go from 1 to n
+	 */
+	HiddenSubsets(int n)
+	{
+		occurrences = new int[n + 1];
+		positions = new int[3 * (n + 1)];
+		values = new int[n];
+	}
+
+	/**
+	 * Removes every value but a, b and c from the domain at <tt>position</tt>. c is -1 for a pair.
+	 * @return false if the domain is now empty
+	 */
+	abstract boolean keepOnly(int position, int a, int b, int c);
+
+	//===============================================================================
+	// Counting
+	//===============================================================================
+
+	/**
+	 * @return number of values, n
+	 */
+	int numValues()
+	{
+		return values.length;
+	}
+
+	/**
+	 * Forgets the positions recorded for the previous unit.
+	 */
+	void clear()
+	{
+		Arrays.fill(occurrences, 0);
+	}
+
+	/**
+	 * Records that the domain at <tt>position</tt> holds <tt>value</tt>.
+	 */
+	void add(int position, int value)
+	{
+		int k = occurrences[value]++;
+		if(k < 3)
+			positions[3 * value + k] = position;
+	}
+
+	/**
+	 * @return false if some value has no position left to take it
+	 */
+	boolean allPlaced()
+	{
+		for(int v = 1; v < occurrences.length; v++)
+		{
+			if(occurrences[v] == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of positions holding <tt>value</tt>
+	 */
+	int occurrences(int value)
+	{
+		return occurrences[value];
+	}
+
+	/**
+	 * @return the first position holding <tt>value</tt>
+	 */
+	int firstPosition(int value)
+	{
+		return positions[3 * value];
+	}
+
+	//===============================================================================
+	// Rules
+	//===============================================================================
+
+	/**
+	 * Two values that can only go to the same two positions remove every other
+	 * value from those positions.
+	 * @return false if a domain was emptied
+	 */
+	boolean pairs()
+	{
+		for(int a = 1; a < occurrences.length; a++)
+		{
+			if(occurrences[a] != 2)
+				continue;
+			for(int b = a + 1; b < occurrences.length; b++)
+			{
+				if(occurrences[b] == 2 && positions[3 * a] == positions[3 * b] && positions[3 * a + 1] == positions[3 * b + 1])
+				{
+					if(!keepOnly(positions[3 * a], a, b, -1) || !keepOnly(positions[3 * a + 1], a, b, -1))
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Three values that can only go to the same three positions remove every
+	 * other value from those positions.
+	 * @return false if a domain was emptied or three values are left for two positions
+	 */
+	boolean triples()
+	{
+		int numCandidates = 0;
+		for(int v = 1; v < occurrences.length; v++)
+		{
+			if(occurrences[v] == 2 || occurrences[v] == 3)
+				values[numCandidates++] = v;
+		}
+		for(int i = 0; i < numCandidates; i++)
+		{
+			for(int j = i + 1; j < numCandidates; j++)
+			{
+				for(int k = j + 1; k < numCandidates; k++)
+				{
+					int a = values[i], b = values[j], c = values[k];
+					int numPositions = addPositions(a, 0);
+					numPositions = addPositions(b, numPositions);
+					numPositions = addPositions(c, numPositions);
+					if(numPositions < 3)	//three values left for two positions
+						return false;
+					if(numPositions == 3)
+					{
+						if(!keepOnly(subset[0], a, b, c) || !keepOnly(subset[1], a, b, c) || !keepOnly(subset[2], a, b, c))
+							return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the positions holding value v to the first <tt>numPositions</tt> entries of subset, skipping duplicates.
+	 * @return the new number of positions in subset, 4 once there are more than three
+	 */
+	private int addPositions(int v, int numPositions)
+	{
+		for(int o = 0; o < occurrences[v] && numPositions <= 3; o++)
+		{
+			int position = positions[3 * v + o];
+			boolean seen = false;
+			for(int i = 0; i < numPositions; i++)
+				seen |= subset[i] == position;
+			if(seen)
+				continue;
+			if(numPositions == 3)
+				return 4;
+			subset[numPositions++] = position;
+		}
+		return numPositions;
+	}
+}
@@ -1,176 +1,500 @@
-package cspSolver;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import sudoku.Converter;
-import sudoku.SudokuFile;
-
-/**
- * Basic local search solver
- *
- */
-public class LocalSolver implements Runnable{
-
-	//===============================================================================
-	// Properties
-	//===============================================================================
-
-	private ConstraintNetwork network;
-	private int n;
-
-	private int numTotalAttempts; 
-	private int numAttempts = 0; //used for restarts
-	private int limitAttempts = 1000; //used for restarts
-	private long startTime, endTime;
-
-	private SudokuFile sudokuGrid;
-
-	//===============================================================================
-	// Constructor
-	//===============================================================================
-
-	public LocalSolver (SudokuFile sf)
-	{
-		this.network = Converter.SudokuFileToConstraintNetwork(sf);
-		n = sf.getN();
-		sudokuGrid = sf;
-	}
-
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-
-	public boolean hasSolution()
-	{
-		return isSolution();
-	}
-
-	/**
-	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
-	 */
-	public SudokuFile getSolution()
-	{
-		return sudokuGrid;
-	}
-
-	public void printSolverStats()
-	{
-		System.out.println("Time taken:" + (endTime-startTime) + " ms");
-		System.out.println("Steps until convergence:" + numTotalAttempts + " steps");
-	}
-
-	//===============================================================================
-	// Helper Methods
-	//===============================================================================
-
-	public boolean isSolution()
-	{
-		for(Constraint c : network.getConstraints())
-		{
-			if(!c.isConsistent())
-			{
-				return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Restarts the local search after a predefined number of attempts. 
-	 */
-	public void restartCounter()
-	{
-		numTotalAttempts++;
-		if (numAttempts++ > limitAttempts)
-		{
-			System.out.println("restart");
-			numAttempts = 0;
-			generateStartState();
-		}
-	}
-
-	/**
-	 * Assigns random values to each non-initial variable in the puzzle
-	 */
-	public void generateStartState()
-	{
-		for(Variable v : network.getVariables())
-		{
-			if(v.isChangeable())
-			{
-				v.assignValue((int)(Math.random()*n+1));
-			}
-		}
-	}
-
-	public void generateSuccessor()
-	{
-		List<Assignment> assignments = getAllPossibleAssignments();
-		Assignment nextAssignment = assignments.get((int)(Math.random()*assignments.size()));
-		network.pushAssignment(nextAssignment);
-	}
-	/**
-	 * @return list of all possible Variable/Value assignments in the puzzle
-	 */
-	public List<Assignment> getAllPossibleAssignments()
-	{
-		List<Assignment> assignments = new ArrayList<Assignment>();
-		for(Variable v : network.getVariables())
-		{
-			if(v.isChangeable())
-			{
-				for(int val = 1; val <= n; val++)
-				{
-					Assignment a = new Assignment (v, val);
-					assignments.add(a);
-				}
-			}
-		}
-		return assignments;
-	}
-
-	private void success()
-	{
-		endTime = System.currentTimeMillis();
-		System.out.println("Solution found!");
-		sudokuGrid = Converter.ConstraintNetworkToSudokuFile(network, sudokuGrid.getN(), sudokuGrid.getP(), sudokuGrid.getQ());
-	}
-
-	public int getNetworkScore()
-	{
-		int networkScore = 0;
-		for(Constraint c : network.getConstraints())
-		{
-			networkScore += c.getConflicts();
-		}
-		return networkScore;
-	}
-
-	//===============================================================================
-	// Solver
-	//===============================================================================
-
-	public void solve()
-	{
-		if (!Thread.currentThread().isInterrupted())
-		{
-			startTime = System.currentTimeMillis();
-			generateStartState();
-
-			while(!isSolution())
-			{
-				restartCounter();
-				generateSuccessor();
-				//int score = getNetworkScore();
-			}
-
-			success();
-		}
-	}
-
-	@Override
-	public void run() {
-		solve();
-	}
-}
+package cspSolver;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import sudoku.Converter;
+import sudoku.SudokuFile;
+
+/**
+ * Min-conflicts local search solver.
+ *
+ * Every changeable variable holds a value at all times. For each variable and
+ * value the solver keeps the number of neighbours currently holding that
+ * value, so the conflicts a move would cause are read from a table rather
+ * than by checking constraints. A step takes a random variable in conflict
+ * and moves it to the value with the fewest conflicts, or to a random value
+ * now and then to leave plateaus, and updates the counts of its neighbours.
+ * When no step has lowered the number of conflicts for a while the search
+ * restarts from a new random state.
+ *
+ * Values held by the initial values of neighbours are never tried, and
+ * variables left with a single such value are fixed to it before the search.
+ */
+public class LocalSolver implements Solver{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private ConstraintNetwork network;
+	private int n;
+
+	private int numTotalAttempts;
+	private int numAttempts = 0; //steps since the conflicts last improved, used for restarts
+	private int limitAttempts; //used for restarts
+	private int numRestarts;
+	private long startTime, endTime;		//System.nanoTime()
+	private boolean hasSolution = false;
+	private volatile boolean cancelled;
+
+	//limits of the current solve, read from its SolveBudget when it starts
+	private static final int CLOCK_INTERVAL = 64;		//steps between reads of the clock
+	private SolveBudget budget = new SolveBudget();
+	private boolean timed;
+	private long timeAllowed;		//nanoseconds
+	private long maxSteps;
+	private SolveResult.Status stopStatus;		//why the search stopped early, null while it may go on
+
+	private SudokuFile sudokuGrid;
+
+	//search state, indexed by variable index
+	private static final int NOISE_PERCENT = 10;		//share of steps that move to a random value
+	private final SplittableRandom random = new SplittableRandom();
+	private int[][] neighbors;
+	private boolean[] fixed;			//initial values and variables with a single candidate
+	private int[][] candidates;			//values a changeable variable may take
+	private boolean contradiction;		//true if the fixed variables already conflict
+	private int[] values;
+	private int[] conflicts;			//conflicts[v * (n + 1) + value] neighbours of v holding value
+	private int totalConflicts = -1;	//sum of the conflicts of each variable's value, -1 before a start state
+	private int bestConflicts;			//fewest conflicts since the last restart
+
+	//changeable variables in conflict, in no order, with each one's position in the list
+	private int[] conflicted;
+	private int[] conflictedPosition;
+	private int numConflicted;
+
+	//===============================================================================
+	// Constructor
+	//===============================================================================
+
+	public LocalSolver (SudokuFile sf)
+	{
+		this.network = Converter.SudokuFileToConstraintNetwork(sf);
+		n = sf.getN();
+		sudokuGrid = sf;
+		buildCandidates();
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	public boolean hasSolution()
+	{
+		return hasSolution;
+	}
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	public SudokuFile getSolution()
+	{
+		return sudokuGrid;
+	}
+
+	public void printSolverStats()
+	{
+		System.out.println("Time taken:" + getTimeTaken() + " ms");
+		System.out.println("Steps until convergence:" + numTotalAttempts + " steps");
+		System.out.println("Restarts:" + numRestarts);
+	}
+
+	public long getTimeTaken()
+	{
+		return (endTime-startTime) / 1000000;
+	}
+
+	/**
+	 * @return the outcome and statistics of the last solve. Local search only
+	 * proves a puzzle has no solution when its initial values contradict each
+	 * other, otherwise it ends solved or stopped early.
+	 */
+	public SolveResult getResult()
+	{
+		SolveResult.Status status = hasSolution ? SolveResult.Status.Solved : stopStatus;
+		return new SolveResult(status, hasSolution, sudokuGrid, endTime - startTime, numTotalAttempts, 0);
+	}
+
+	/**
+	 * @return number of local search steps taken
+	 */
+	public int getNumAssignments()
+	{
+		return numTotalAttempts;
+	}
+
+	/**
+	 * Local search never undoes an assignment.
+	 * @return 0
+	 */
+	public int getNumBacktracks()
+	{
+		return 0;
+	}
+
+	/**
+	 * @return number of times the search started over from a random state
+	 */
+	public int getNumRestarts()
+	{
+		return numRestarts;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * Stops a running solve before its next step.
+	 */
+	public void cancel()
+	{
+		cancelled = true;
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	/**
+	 * @return true if the current state breaks no constraint, false before a start state is generated
+	 */
+	public boolean isSolution()
+	{
+		return totalConflicts == 0;
+	}
+
+	/**
+	 * Counts a step and restarts the local search once a predefined number of
+	 * steps has gone by without reaching fewer conflicts.
+	 */
+	public void restartCounter()
+	{
+		numTotalAttempts++;
+		if(totalConflicts < bestConflicts)
+		{
+			bestConflicts = totalConflicts;
+			numAttempts = 0;
+		}
+		else if (numAttempts++ > limitAttempts)
+		{
+			numRestarts++;
+			generateStartState();
+		}
+	}
+
+	/**
+	 * Assigns a random candidate to each changeable variable in the puzzle and
+	 * counts the conflicts of the new state.
+	 */
+	public void generateStartState()
+	{
+		if(contradiction)
+		{
+			return;
+		}
+		int stride = n + 1;
+		Arrays.fill(conflicts, 0);
+		for(int v = 0; v < values.length; v++)
+		{
+			if(!fixed[v])
+			{
+				values[v] = candidates[v][random.nextInt(candidates[v].length)];
+			}
+			for(int neighbor : neighbors[v])
+			{
+				conflicts[neighbor * stride + values[v]]++;
+			}
+		}
+
+		totalConflicts = 0;
+		numConflicted = 0;
+		for(int v = 0; v < values.length; v++)
+		{
+			conflictedPosition[v] = -1;
+			int c = conflicts[v * stride + values[v]];
+			totalConflicts += c;
+			if(c > 0 && !fixed[v])
+			{
+				addConflicted(v);
+			}
+		}
+		bestConflicts = totalConflicts;
+		numAttempts = 0;
+	}
+
+	/**
+	 * Takes one min-conflicts step: gives a random variable in conflict the
+	 * value with the fewest conflicts, choosing between equal values at random,
+	 * so it may keep its value. NOISE_PERCENT of the time the variable moves to
+	 * a random other value instead, which lets the search leave plateaus.
+	 */
+	public void generateSuccessor()
+	{
+		if(numConflicted == 0)
+		{
+			return;
+		}
+		int v = conflicted[random.nextInt(numConflicted)];
+		int[] options = candidates[v];
+		int current = values[v];
+		int next;
+		if(random.nextInt(100) < NOISE_PERCENT)
+		{
+			do
+			{
+				next = options[random.nextInt(options.length)];
+			} while(next == current);
+		}
+		else
+		{
+			int offset = v * (n + 1);
+			next = current;
+			int fewest = Integer.MAX_VALUE;
+			int numTied = 0;
+			for(int value : options)
+			{
+				int c = conflicts[offset + value];
+				if(c < fewest)
+				{
+					fewest = c;
+					next = value;
+					numTied = 1;
+				}
+				else if(c == fewest && random.nextInt(++numTied) == 0)
+				{
+					next = value;
+				}
+			}
+		}
+		if(next != current)
+		{
+			move(v, next);
+		}
+	}
+
+	/**
+	 * Gives variable <tt>v</tt> a new value and updates the conflict counts of
+	 * its neighbours, and which variables are in conflict.
+	 */
+	private void move(int v, int value)
+	{
+		int stride = n + 1;
+		int old = values[v];
+		totalConflicts += 2 * (conflicts[v * stride + value] - conflicts[v * stride + old]);
+		values[v] = value;
+		for(int neighbor : neighbors[v])
+		{
+			int offset = neighbor * stride;
+			conflicts[offset + old]--;
+			conflicts[offset + value]++;
+			if(fixed[neighbor])
+			{
+				continue;
+			}
+			if(values[neighbor] == old && conflicts[offset + old] == 0)
+			{
+				removeConflicted(neighbor);
+			}
+			else if(values[neighbor] == value && conflicts[offset + value] == 1)
+			{
+				addConflicted(neighbor);
+			}
+		}
+		if(conflicts[v * stride + value] == 0)
+		{
+			removeConflicted(v);
+		}
+	}
+
+	private void addConflicted(int v)
+	{
+		conflictedPosition[v] = numConflicted;
+		conflicted[numConflicted++] = v;
+	}
+
+	private void removeConflicted(int v)
+	{
+		int position = conflictedPosition[v];
+		int last = conflicted[--numConflicted];
+		conflicted[position] = last;
+		conflictedPosition[last] = position;
+		conflictedPosition[v] = -1;
+	}
+
+	/**
+	 * Fixes the initial values, then keeps for each changeable variable the
+	 * values of its domain that no fixed neighbour holds, fixing variables left
+	 * with one value until no more are.
+	 */
+	private void buildCandidates()
+	{
+		int numVariables = network.getVariables().size();
+		neighbors = new int[numVariables][];
+		fixed = new boolean[numVariables];
+		candidates = new int[numVariables][];
+		values = new int[numVariables];
+		conflicts = new int[numVariables * (n + 1)];
+		conflicted = new int[numVariables];
+		conflictedPosition = new int[numVariables];
+		for(Variable var : network.getVariables())
+		{
+			int v = var.getIndex();
+			neighbors[v] = network.getNeighborIndices(v);
+			if(!var.isChangeable())
+			{
+				fixed[v] = true;
+				values[v] = var.getAssignment();
+			}
+		}
+
+		boolean changed = true;
+		while(changed && !contradiction)
+		{
+			changed = false;
+			for(Variable var : network.getVariables())
+			{
+				int v = var.getIndex();
+				if(fixed[v])
+				{
+					continue;
+				}
+				int[] options = new int[var.size()];
+				int numOptions = 0;
+				for(int value : var.getDomain().getValues())
+				{
+					boolean taken = false;
+					for(int neighbor : neighbors[v])
+					{
+						if(fixed[neighbor] && values[neighbor] == value)
+						{
+							taken = true;
+							break;
+						}
+					}
+					if(!taken)
+					{
+						options[numOptions++] = value;
+					}
+				}
+				candidates[v] = Arrays.copyOf(options, numOptions);
+				if(numOptions == 0)
+				{
+					contradiction = true;
+					break;
+				}
+				if(numOptions == 1)
+				{
+					fixed[v] = true;
+					values[v] = options[0];
+					changed = true;
+				}
+			}
+		}
+
+		//fixed variables that conflict, initial values included, leave nothing to search
+		for(int v = 0; v < numVariables && !contradiction; v++)
+		{
+			for(int neighbor : neighbors[v])
+			{
+				if(fixed[v] && fixed[neighbor] && values[v] == values[neighbor])
+				{
+					contradiction = true;
+					break;
+				}
+			}
+		}
+		limitAttempts = 100 * numVariables;
+	}
+
+	private void success()
+	{
+		hasSolution = true;
+		for(Variable var : network.getVariables())
+		{
+			if(var.isChangeable())
+			{
+				var.assignValue(values[var.getIndex()]);
+			}
+		}
+		sudokuGrid = Converter.ConstraintNetworkToSudokuFile(network, sudokuGrid.getN(), sudokuGrid.getP(), sudokuGrid.getQ());
+	}
+
+	/**
+	 * @return number of ordered pairs of neighbours holding the same value, 0 once solved
+	 */
+	public int getNetworkScore()
+	{
+		return totalConflicts;
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	/**
+	 * Solves the puzzle, stopping early once any limit of <tt>budget</tt> is spent.
+	 * Both the assignment and the step limit count local search steps.
+	 * @return why the solve stopped, with its statistics up to then
+	 */
+	public SolveResult solve(SolveBudget budget)
+	{
+		this.budget = budget;
+		solve();
+		return getResult();
+	}
+
+	/**
+	 * Checks for cancellation and for the limits of the budget, reading the
+	 * clock once every CLOCK_INTERVAL steps when the budget has a time limit.
+	 * @return true once the search must stop
+	 */
+	private boolean mustStop()
+	{
+		if(cancelled || Thread.currentThread().isInterrupted())
+			stopStatus = SolveResult.Status.Cancelled;
+		else if(numTotalAttempts >= maxSteps)
+			stopStatus = budget.getMaxSteps() <= budget.getMaxAssignments() ? SolveResult.Status.OutOfSteps : SolveResult.Status.OutOfAssignments;
+		else if(timed && numTotalAttempts % CLOCK_INTERVAL == 0 && System.nanoTime() - startTime >= timeAllowed)
+			stopStatus = SolveResult.Status.TimedOut;
+		return stopStatus != null;
+	}
+
+	public void solve()
+	{
+		startTime = System.nanoTime();
+		stopStatus = null;
+		timed = budget.isTimed();
+		timeAllowed = budget.getTimeAllowed(startTime);
+		maxSteps = Math.min(budget.getMaxSteps(), budget.getMaxAssignments());
+		if(contradiction)
+		{
+			stopStatus = SolveResult.Status.NoSolution;
+		}
+		else if(!mustStop())
+		{
+			generateStartState();
+
+			while(!isSolution())
+			{
+				if(mustStop())
+				{
+					endTime = System.nanoTime();
+					return;
+				}
+				restartCounter();
+				generateSuccessor();
+			}
+
+			success();
+		}
+		endTime = System.nanoTime();
+	}
+
+	@Override
+	public void run() {
+		solve();
+	}
+}
@@ -0,0 +1,406 @@
+package cspSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.SudokuFile;
+
+/**
+ * Backtracking search of a single puzzle on several cores. The top levels of
+ * the search tree are split into subproblems, one child puzzle per value of
+ * the cell with the fewest candidates, until there are a few subproblems per
+ * thread or MAX_SPLIT_DEPTH cells have been split on. Each subproblem is then
+ * solved by its own BTSolver, with its own network and trail, as a task of a
+ * ForkJoinPool, so idle threads steal the subtrees left by busy ones.
+ *
+ * The first subproblem to find a solution cancels every other one. If every
+ * subproblem is exhausted the puzzle has no solution. countSolutions() counts
+ * the solutions of every subproblem instead, stopping them all once the
+ * limit is reached.
+ *
+ * @see BTSolver
+ */
+public class ParallelBTSolver implements Solver{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private static final int MAX_SPLIT_DEPTH = 32;
+
+	private final SudokuFile sudokuGrid;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int subproblemsPerThread = 16;
+
+	private VariableSelectionHeuristic varHeuristics = VariableSelectionHeuristic.None;
+	private ValueSelectionHeuristic valHeuristics = ValueSelectionHeuristic.None;
+	private ConsistencyCheck cChecks = ConsistencyCheck.None;
+	private HeuristicCheck heurCheck = HeuristicCheck.None;
+
+	private final AtomicReference<SudokuFile> solution = new AtomicReference<SudokuFile>();
+	private final Set<BTSolver> running = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger numAssignments = new AtomicInteger();
+	private final AtomicInteger numBacktracks = new AtomicInteger();
+	private final AtomicInteger numSubproblems = new AtomicInteger();
+	private final AtomicLong numSolutions = new AtomicLong();
+	private long solutionLimit = 1;		//solutions to find before stopping, 0 for all of them
+	private volatile boolean limitReached;
+	private volatile boolean cancelled;
+	private volatile SolveResult.Status stopStatus;		//why part of the search stopped before finishing, null if none did
+	private long startTime;
+	private long endTime;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	public ParallelBTSolver(SudokuFile sf)
+	{
+		this.sudokuGrid = sf;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	public void setVariableSelectionHeuristic(VariableSelectionHeuristic vsh)
+	{
+		this.varHeuristics = vsh;
+	}
+
+	public void setValueSelectionHeuristic(ValueSelectionHeuristic vsh)
+	{
+		this.valHeuristics = vsh;
+	}
+
+	public void setConsistencyChecks(ConsistencyCheck cc)
+	{
+		this.cChecks = cc;
+	}
+
+	public void setHeuristicCheck(HeuristicCheck check)
+	{
+		this.heurCheck = check;
+	}
+
+	/**
+	 * @param parallelism number of worker threads, defaults to the number of cores
+	 */
+	public void setParallelism(int parallelism)
+	{
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param subproblemsPerThread how many subproblems per thread to split the search into, defaults to 16
+	 */
+	public void setSubproblemsPerThread(int subproblemsPerThread)
+	{
+		this.subproblemsPerThread = subproblemsPerThread;
+	}
+
+	/**
+	 * Stops every running subproblem at the next node it visits.
+	 */
+	@Override
+	public void cancel()
+	{
+		cancelled = true;
+		stopAll();
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * @return true if a solution has been found, false otherwise.
+	 */
+	public boolean hasSolution()
+	{
+		return solution.get() != null;
+	}
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	public SudokuFile getSolution()
+	{
+		return hasSolution() ? solution.get() : sudokuGrid;
+	}
+
+	public void printSolverStats()
+	{
+		System.out.println("Time taken:" + (endTime-startTime) + " ms");
+		System.out.println("Number of subproblems: " + numSubproblems.get());
+		System.out.println("Number of assignments: " + numAssignments.get());
+		System.out.println("Number of backtracks: " + numBacktracks.get());
+	}
+
+	/**
+	 * @return wall time taken by the solver in milliseconds
+	 */
+	public long getTimeTaken()
+	{
+		return endTime-startTime;
+	}
+
+	/**
+	 * @return assignments made by all subproblems together
+	 */
+	public int getNumAssignments()
+	{
+		return numAssignments.get();
+	}
+
+	/**
+	 * @return backtracks made by all subproblems together
+	 */
+	public int getNumBacktracks()
+	{
+		return numBacktracks.get();
+	}
+
+	/**
+	 * @return number of solutions found so far by all subproblems together
+	 */
+	public long getNumSolutions()
+	{
+		return numSolutions.get();
+	}
+
+	/**
+	 * @return the outcome and statistics of the last solve
+	 */
+	public SolveResult getResult()
+	{
+		SolveResult.Status status = hasSolution() ? SolveResult.Status.Solved : stopStatus != null ? stopStatus : SolveResult.Status.NoSolution;
+		return new SolveResult(status, hasSolution(), getSolution(), (endTime - startTime) * 1000000, numAssignments.get(), numBacktracks.get());
+	}
+
+	/**
+	 * @return number of subproblems solved by a BTSolver
+	 */
+	public int getNumSubproblems()
+	{
+		return numSubproblems.get();
+	}
+
+	//===============================================================================
+	// Splitting
+	//===============================================================================
+
+	/**
+	 * One subtree of the search: a puzzle with some cells filled in by the splits above it.
+	 */
+	private class Subtree extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final SudokuFile sf;
+		private final int depth;
+		private final int estimate;		//subproblems the search has been split into so far
+
+		Subtree(SudokuFile sf, int depth, int estimate)
+		{
+			this.sf = sf;
+			this.depth = depth;
+			this.estimate = estimate;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(isStopped())
+			{
+				stopped(SolveResult.Status.Cancelled);
+				return;
+			}
+			if(estimate < parallelism * subproblemsPerThread && depth < MAX_SPLIT_DEPTH)
+			{
+				List<SudokuFile> children = split(sf);
+				if(children != null)
+				{
+					List<Subtree> subtrees = new ArrayList<Subtree>(children.size());
+					for(SudokuFile child : children)
+						subtrees.add(new Subtree(child, depth + 1, estimate * children.size()));
+					invokeAll(subtrees);
+					return;
+				}
+			}
+			solveSubproblem(sf);
+		}
+	}
+
+	/**
+	 * Branches on the empty cell with the fewest values not used by its row, column and block.
+	 * @return one child puzzle per candidate value, empty if the cell has none; null if the puzzle has no empty cell
+	 */
+	private static List<SudokuFile> split(SudokuFile sf)
+	{
+		int n = sf.getN();
+		int p = sf.getP();
+		int q = sf.getQ();
+		int[][] board = sf.getBoard();
+		boolean[][] rowUsed = new boolean[n][n + 1];
+		boolean[][] colUsed = new boolean[n][n + 1];
+		boolean[][] blockUsed = new boolean[n][n + 1];
+		for(int i = 0; i < n; i++)
+		{
+			for(int j = 0; j < n; j++)
+			{
+				int v = board[i][j];
+				if(v > 0 && v <= n)
+				{
+					rowUsed[i][v] = true;
+					colUsed[j][v] = true;
+					blockUsed[i / p * p + j / q][v] = true;
+				}
+			}
+		}
+
+		int bestRow = -1;
+		int bestCol = -1;
+		int bestCount = Integer.MAX_VALUE;
+		for(int i = 0; i < n && bestCount > 1; i++)
+		{
+			for(int j = 0; j < n && bestCount > 1; j++)
+			{
+				if(board[i][j] != 0)
+					continue;
+				int count = 0;
+				for(int v = 1; v <= n; v++)
+				{
+					if(!rowUsed[i][v] && !colUsed[j][v] && !blockUsed[i / p * p + j / q][v])
+						count++;
+				}
+				if(count < bestCount)
+				{
+					bestRow = i;
+					bestCol = j;
+					bestCount = count;
+				}
+			}
+		}
+		if(bestRow == -1)
+			return null;
+
+		List<SudokuFile> children = new ArrayList<SudokuFile>(bestCount);
+		for(int v = 1; v <= n; v++)
+		{
+			if(rowUsed[bestRow][v] || colUsed[bestCol][v] || blockUsed[bestRow / p * p + bestCol / q][v])
+				continue;
+			int[][] child = new int[n][];
+			for(int i = 0; i < n; i++)
+				child[i] = board[i].clone();
+			child[bestRow][bestCol] = v;
+			children.add(new SudokuFile(n, p, q, child));
+		}
+		return children;
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	private boolean isStopped()
+	{
+		return cancelled || limitReached;
+	}
+
+	/**
+	 * Records why part of the search stopped early, keeping the first reason given.
+	 */
+	private void stopped(SolveResult.Status status)
+	{
+		if(stopStatus == null)
+			stopStatus = status;
+	}
+
+	private void stopAll()
+	{
+		for(BTSolver solver : running)
+			solver.cancel();
+	}
+
+	private void solveSubproblem(SudokuFile sf)
+	{
+		BTSolver solver = new BTSolver(sf);
+		solver.setConsistencyChecks(cChecks);
+		solver.setHeuristicCheck(heurCheck);
+		solver.setVariableSelectionHeuristic(varHeuristics);
+		solver.setValueSelectionHeuristic(valHeuristics);
+
+		running.add(solver);
+		if(isStopped())		//stopped before the solver could be reached
+		{
+			running.remove(solver);
+			stopped(SolveResult.Status.Cancelled);
+			return;
+		}
+		long found = solver.countSolutions(solutionLimit);
+		running.remove(solver);
+		SolveResult.Status status = solver.getResult().getStatus();
+		if(status != SolveResult.Status.Solved && status != SolveResult.Status.NoSolution)
+			stopped(status);
+
+		numSubproblems.incrementAndGet();
+		numAssignments.addAndGet(solver.getNumAssignments());
+		numBacktracks.addAndGet(solver.getNumBacktracks());
+		if(found > 0)
+		{
+			solution.compareAndSet(null, solver.getSolution());
+			if(numSolutions.addAndGet(found) >= solutionLimit && solutionLimit != 0)
+			{
+				limitReached = true;
+				stopAll();
+			}
+		}
+	}
+
+	/**
+	 * Counts the solutions of the puzzle over all subproblems in parallel, stopping
+	 * every subproblem as soon as <tt>limit</tt> solutions have been found between them.
+	 * The first solution found is returned by getSolution().
+	 * @param limit most solutions to look for, 0 to count them all
+	 * @return number of solutions found, a lower bound if the search was cancelled
+	 */
+	public long countSolutions(long limit)
+	{
+		solutionLimit = limit;
+		solve();
+		return limit == 0 ? numSolutions.get() : Math.min(numSolutions.get(), limit);
+	}
+
+	public void solve()
+	{
+		startTime = System.currentTimeMillis();
+		stopStatus = null;
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try
+		{
+			pool.invoke(new Subtree(sudokuGrid, 0, 1));
+		}
+		finally
+		{
+			pool.shutdownNow();
+			endTime = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public void run() {
+		solve();
+	}
+}
@@ -0,0 +1,376 @@
+package cspSolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.SudokuFile;
+
+/**
+ * Races several solver configurations on the same puzzle, one thread each.
+ * The first configuration to decide the puzzle wins: either it found a
+ * solution, or it exhausted the search and so proved there is none. Every
+ * other solver is then cancelled right away. A configuration that stops
+ * without deciding, such as one whose heuristic failed, drops out of the race
+ * and the others go on.
+ *
+ * The best configuration varies a lot from puzzle to puzzle, so racing a few
+ * diverse ones is usually faster than betting on any single one.
+ */
+public class PortfolioSolver implements Solver{
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final SudokuFile sudokuGrid;
+	private final List<Configuration> configurations = new ArrayList<Configuration>();
+	private long timeout = 0;	//0 waits until a configuration finishes
+
+	private Configuration winningConfiguration;
+	private Solver winner;
+	private volatile Solver[] solvers;
+	private volatile boolean cancelled;
+	private SolveResult.Status status;		//outcome of the race when no configuration decided it
+	private long startTime;
+	private long endTime;
+
+	/**
+	 * A named way of building a solver for the puzzle.
+	 */
+	private static abstract class Configuration
+	{
+		final String name;
+
+		Configuration(String name)
+		{
+			this.name = name;
+		}
+
+		abstract Solver create(SudokuFile sf);
+	}
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	public PortfolioSolver(SudokuFile sf)
+	{
+		this.sudokuGrid = sf;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * Adds a BTSolver with the given options to the race.
+	 */
+	public void addConfiguration(final ConsistencyCheck cc, final HeuristicCheck hc,
+			final VariableSelectionHeuristic varSelect, final ValueSelectionHeuristic valSelect)
+	{
+		String name = "BTSolver(" + cc + ", " + hc + ", " + varSelect + ", " + valSelect + ")";
+		configurations.add(new Configuration(name) {
+			@Override
+			Solver create(SudokuFile sf)
+			{
+				BTSolver solver = new BTSolver(sf);
+				solver.setConsistencyChecks(cc);
+				solver.setHeuristicCheck(hc);
+				solver.setVariableSelectionHeuristic(varSelect);
+				solver.setValueSelectionHeuristic(valSelect);
+				return solver;
+			}
+		});
+	}
+
+	/**
+	 * Adds a LocalSolver to the race. Local search never proves a puzzle unsolvable,
+	 * so it can only win by finding a solution.
+	 */
+	public void addLocalSolver()
+	{
+		configurations.add(new Configuration("LocalSolver") {
+			@Override
+			Solver create(SudokuFile sf)
+			{
+				return new LocalSolver(sf);
+			}
+		});
+	}
+
+	/**
+	 * Adds a DLXSolver to the race.
+	 */
+	public void addDLXSolver()
+	{
+		configurations.add(new Configuration("DLXSolver") {
+			@Override
+			Solver create(SudokuFile sf)
+			{
+				return new DLXSolver(sf);
+			}
+		});
+	}
+
+	/**
+	 * Adds a small set of configurations that differ in how they search.
+	 */
+	public void addDefaultConfigurations()
+	{
+		addConfiguration(ConsistencyCheck.ForwardChecking, HeuristicCheck.None,
+				VariableSelectionHeuristic.MinimumRemainingValue, ValueSelectionHeuristic.LeastConstrainingValue);
+		addConfiguration(ConsistencyCheck.AC3, HeuristicCheck.None,
+				VariableSelectionHeuristic.MinimumRemainingValue, ValueSelectionHeuristic.None);
+		addConfiguration(ConsistencyCheck.AC3, HeuristicCheck.Both,
+				VariableSelectionHeuristic.MinimumRemainingValue, ValueSelectionHeuristic.LeastConstrainingValue);
+		addConfiguration(ConsistencyCheck.ForwardChecking, HeuristicCheck.NakedPairs,
+				VariableSelectionHeuristic.Degree, ValueSelectionHeuristic.LeastConstrainingValue);
+	}
+
+	/**
+	 * @param timeout time in ms after which every configuration is cancelled, 0 for no limit
+	 */
+	public void setTimeout(long timeout)
+	{
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Stops every configuration still in the race.
+	 */
+	@Override
+	public void cancel()
+	{
+		cancelled = true;
+		Solver[] racing = solvers;
+		if(racing != null)
+		{
+			for(Solver solver : racing)
+			{
+				solver.cancel();
+			}
+		}
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	public boolean hasSolution()
+	{
+		return winner != null && winner.hasSolution();
+	}
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	public SudokuFile getSolution()
+	{
+		return hasSolution() ? winner.getSolution() : sudokuGrid;
+	}
+
+	/**
+	 * @return the solver that decided the race, null if none decided it
+	 */
+	public Solver getWinner()
+	{
+		return winner;
+	}
+
+	/**
+	 * @return description of the configuration that decided the race, null if none decided it
+	 */
+	public String getWinningConfiguration()
+	{
+		return winningConfiguration == null ? null : winningConfiguration.name;
+	}
+
+	/**
+	 * @return wall time of the whole race in milliseconds
+	 */
+	public long getTimeTaken()
+	{
+		return endTime-startTime;
+	}
+
+	/**
+	 * @return assignments made by all configurations together
+	 */
+	public int getNumAssignments()
+	{
+		int numAssignments = 0;
+		Solver[] racing = solvers;
+		if(racing != null)
+		{
+			for(Solver solver : racing)
+			{
+				numAssignments += solver.getNumAssignments();
+			}
+		}
+		return numAssignments;
+	}
+
+	/**
+	 * @return backtracks made by all configurations together
+	 */
+	public int getNumBacktracks()
+	{
+		int numBacktracks = 0;
+		Solver[] racing = solvers;
+		if(racing != null)
+		{
+			for(Solver solver : racing)
+			{
+				numBacktracks += solver.getNumBacktracks();
+			}
+		}
+		return numBacktracks;
+	}
+
+	/**
+	 * @return the winner's outcome; otherwise TimedOut, Cancelled, or Failed if
+	 * every configuration stopped without deciding the puzzle
+	 */
+	public SolveResult getResult()
+	{
+		SolveResult.Status outcome = winner != null ? winner.getResult().getStatus() : status;
+		return new SolveResult(outcome, hasSolution(), getSolution(), (endTime - startTime) * 1000000, getNumAssignments(), getNumBacktracks());
+	}
+
+	public void printSolverStats()
+	{
+		System.out.println("Time taken:" + (endTime-startTime) + " ms");
+		if(winner == null)
+		{
+			System.out.println("No configuration decided the puzzle: " + status);
+			return;
+		}
+		System.out.println("Winning configuration: " + winningConfiguration.name);
+		winner.printSolverStats();
+	}
+
+	//===============================================================================
+	// Solver
+	//===============================================================================
+
+	public void solve()
+	{
+		startTime = System.currentTimeMillis();
+		int numConfigurations = configurations.size();
+		if(numConfigurations == 0)
+		{
+			addDefaultConfigurations();
+			numConfigurations = configurations.size();
+		}
+
+		final Solver[] solvers = new Solver[numConfigurations];
+		for(int i = 0; i < numConfigurations; i++)
+		{
+			solvers[i] = configurations.get(i).create(sudokuGrid);
+		}
+		winner = null;
+		winningConfiguration = null;
+		status = SolveResult.Status.Failed;
+		this.solvers = solvers;
+		if(cancelled)
+		{
+			cancel();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numConfigurations, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "portfolio-solver");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		CompletionService<Integer> race = new ExecutorCompletionService<Integer>(executor);
+		for(int i = 0; i < numConfigurations; i++)
+		{
+			final int index = i;
+			race.submit(new Callable<Integer>() {
+				@Override
+				public Integer call()
+				{
+					solvers[index].solve();
+					return index;
+				}
+			});
+		}
+
+		try
+		{
+			long deadline = startTime + timeout;
+			for(int finished = 0; finished < numConfigurations && winner == null; finished++)
+			{
+				Future<Integer> done;
+				if(timeout > 0)
+				{
+					done = race.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+					if(done == null)
+					{
+						status = SolveResult.Status.TimedOut;
+						break;
+					}
+				}
+				else
+				{
+					done = race.take();
+				}
+
+				try
+				{
+					int index = done.get();
+					SolveResult.Status outcome = solvers[index].getResult().getStatus();
+					if(outcome == SolveResult.Status.Solved || outcome == SolveResult.Status.NoSolution)
+					{
+						winner = solvers[index];
+						winningConfiguration = configurations.get(index);
+					}
+					else if(outcome == SolveResult.Status.Cancelled)
+					{
+						status = SolveResult.Status.Cancelled;
+					}
+				}
+				catch(ExecutionException e)
+				{
+					System.err.println("A portfolio configuration failed: " + e.getCause());
+				}
+			}
+		}
+		catch(InterruptedException e)
+		{
+			status = SolveResult.Status.Cancelled;
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			for(Solver solver : solvers)
+			{
+				solver.cancel();
+			}
+			executor.shutdownNow();
+			endTime = System.currentTimeMillis();
+		}
+	}
+
+	@Override
+	public void run() {
+		solve();
+	}
+}
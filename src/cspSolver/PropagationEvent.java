@@ -0,0 +1,39 @@
+package cspSolver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event spanning one consistency or heuristic check of
+ * BTSolver. Only passes longer than the threshold are recorded. Disabled by
+ * default; enable <tt>cspSolver.Propagation</tt> to record it.
+ */
+@Name("cspSolver.Propagation")
+@Label("Propagation")
+@Category({"Sudoku", "Solver"})
+@Description("A long consistency or heuristic check")
+@Enabled(false)
+@Threshold("1 ms")
+@StackTrace(false)
+final class PropagationEvent extends Event {
+
+	@Label("Check")
+	@Description("ConsistencyCheck or HeuristicCheck")
+	String check;
+
+	@Label("Mode")
+	@Description("The check the solver was set up with")
+	String mode;
+
+	@Label("Depth")
+	int depth;
+
+	@Label("Consistent")
+	boolean consistent;
+}
@@ -0,0 +1,196 @@
+package cspSolver;
+
+import java.util.Arrays;
+
+/**
+ * SolverListener that gathers the metrics of one search: the time spent in
+ * each phase, peak depth, branching factor at each depth, and how much work
+ * propagation did, read from the network and trail counters at the start and
+ * end of the search.
+ *
+ * Propagations count the domain reductions not made by the search's own
+ * assignments, so each one is a domain narrowed by a consistency or heuristic
+ * check.
+ *
+ * Not thread safe; attach one instance to one solver.
+ */
+public class SearchMetrics implements SolverListener {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final long[] phaseNanos = new long[Phase.values().length];
+	private final long[] phaseCalls = new long[Phase.values().length];
+
+	private long[] nodesAtDepth = new long[64];
+	private long[] branchesAtDepth = new long[64];
+	private int peakDepth = -1;
+	private long numNodes;
+	private long numBacktracks;
+
+	private long numAssignments;
+	private long numPropagations;
+	private long numValuesRemoved;
+	private long numTrailPushes;
+
+	//counters as of solveStarted()
+	private int startAssignments;
+	private long startReductions;
+	private long startValuesRemoved;
+	private long startTrailPushes;
+
+	//===============================================================================
+	// SolverListener
+	//===============================================================================
+
+	@Override
+	public void solveStarted(BTSolver solver)
+	{
+		ConstraintNetwork network = solver.getNetwork();
+		startAssignments = solver.getNumAssignments();
+		startReductions = network.getNumDomainReductions();
+		startValuesRemoved = network.getNumValuesRemoved();
+		startTrailPushes = network.getTrail().getNumPushes();
+	}
+
+	@Override
+	public void nodeExpanded(int depth, int branchingFactor)
+	{
+		if(depth >= nodesAtDepth.length)
+		{
+			int capacity = Math.max(depth + 1, nodesAtDepth.length * 2);
+			nodesAtDepth = Arrays.copyOf(nodesAtDepth, capacity);
+			branchesAtDepth = Arrays.copyOf(branchesAtDepth, capacity);
+		}
+		nodesAtDepth[depth]++;
+		branchesAtDepth[depth] += branchingFactor;
+		if(depth > peakDepth)
+		{
+			peakDepth = depth;
+		}
+		numNodes++;
+	}
+
+	@Override
+	public void backtracked(int depth)
+	{
+		numBacktracks++;
+	}
+
+	@Override
+	public void phaseTimed(Phase phase, long nanos)
+	{
+		phaseNanos[phase.ordinal()] += nanos;
+		phaseCalls[phase.ordinal()]++;
+	}
+
+	@Override
+	public void solveFinished(BTSolver solver)
+	{
+		ConstraintNetwork network = solver.getNetwork();
+		numAssignments = solver.getNumAssignments() - startAssignments;
+		numPropagations = network.getNumDomainReductions() - startReductions - numAssignments;
+		numValuesRemoved = network.getNumValuesRemoved() - startValuesRemoved;
+		numTrailPushes = network.getTrail().getNumPushes() - startTrailPushes;
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * @return total nanoseconds spent in a phase
+	 */
+	public long getPhaseNanos(Phase phase)
+	{
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return number of times a phase ran
+	 */
+	public long getPhaseCalls(Phase phase)
+	{
+		return phaseCalls[phase.ordinal()];
+	}
+
+	/**
+	 * @return deepest level a variable was selected at, -1 if none was
+	 */
+	public int getPeakDepth()
+	{
+		return peakDepth;
+	}
+
+	/**
+	 * @return number of variables selected to branch on
+	 */
+	public long getNumNodes()
+	{
+		return numNodes;
+	}
+
+	public long getNumBacktracks()
+	{
+		return numBacktracks;
+	}
+
+	public long getNumAssignments()
+	{
+		return numAssignments;
+	}
+
+	/**
+	 * @return number of domains narrowed by propagation rather than by assignment
+	 */
+	public long getNumPropagations()
+	{
+		return numPropagations;
+	}
+
+	/**
+	 * @return values removed from domains, by assignments and propagation together
+	 */
+	public long getNumValuesRemoved()
+	{
+		return numValuesRemoved;
+	}
+
+	public long getNumTrailPushes()
+	{
+		return numTrailPushes;
+	}
+
+	/**
+	 * @return mean number of values tried per node at each depth up to the peak depth, 0 where no node was expanded
+	 */
+	public double[] getBranchingPerDepth()
+	{
+		double[] branching = new double[peakDepth + 1];
+		for(int d = 0; d <= peakDepth; d++)
+		{
+			branching[d] = nodesAtDepth[d] == 0 ? 0 : (double)branchesAtDepth[d] / nodesAtDepth[d];
+		}
+		return branching;
+	}
+
+	public void printMetrics()
+	{
+		System.out.println("Nodes: " + numNodes + ", peak depth: " + peakDepth);
+		System.out.println("Assignments: " + numAssignments + ", backtracks: " + numBacktracks);
+		System.out.println("Propagations: " + numPropagations + ", values removed: " + numValuesRemoved + ", trail pushes: " + numTrailPushes);
+		for(Phase phase : Phase.values())
+		{
+			long calls = phaseCalls[phase.ordinal()];
+			long nanos = phaseNanos[phase.ordinal()];
+			System.out.println(String.format("%-18s %10d calls %12.3f ms %10.0f ns/call", phase, calls, nanos / 1e6, calls == 0 ? 0.0 : (double)nanos / calls));
+		}
+		StringBuilder sb = new StringBuilder("Branching per depth:");
+		for(double b : getBranchingPerDepth())
+		{
+			sb.append(String.format(" %.2f", b));
+		}
+		System.out.println(sb);
+	}
+}
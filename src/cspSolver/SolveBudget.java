@@ -0,0 +1,97 @@
+package cspSolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits on the work of one solve: a deadline, a time limit counted from the
+ * start of the solve, a number of assignments and a number of local search
+ * steps. A solve given a budget stops as soon as it finds any of them spent
+ * and reports which one in its SolveResult. Every limit starts unlimited.
+ *
+ * BTSolver ignores the step limit and LocalSolver counts each step as one
+ * assignment, so either limit stops it.
+ *
+ * @see BTSolver#solve(SolveBudget)
+ * @see LocalSolver#solve(SolveBudget)
+ */
+public class SolveBudget {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private boolean hasDeadline;
+	private long deadline;						//System.nanoTime()
+	private long timeLimit = UNLIMITED;			//nanoseconds
+	private long maxAssignments = UNLIMITED;
+	private long maxSteps = UNLIMITED;
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * @param deadline time to stop by, as read from System.nanoTime()
+	 */
+	public void setDeadline(long deadline)
+	{
+		this.hasDeadline = true;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Limits each solve to <tt>time</tt> from its start. Applies together with the deadline, if both are set.
+	 */
+	public void setTimeLimit(long time, TimeUnit unit)
+	{
+		this.timeLimit = unit.toNanos(time);
+	}
+
+	public void setMaxAssignments(long maxAssignments)
+	{
+		this.maxAssignments = maxAssignments;
+	}
+
+	public void setMaxSteps(long maxSteps)
+	{
+		this.maxSteps = maxSteps;
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	public long getMaxAssignments()
+	{
+		return maxAssignments;
+	}
+
+	public long getMaxSteps()
+	{
+		return maxSteps;
+	}
+
+	/**
+	 * @return true if the budget limits the time of a solve
+	 */
+	public boolean isTimed()
+	{
+		return hasDeadline || timeLimit != UNLIMITED;
+	}
+
+	/**
+	 * @param startTime start of the solve, as read from System.nanoTime()
+	 * @return nanoseconds the solve may run for, until the deadline or the end of the time limit, whichever is first
+	 */
+	long getTimeAllowed(long startTime)
+	{
+		long allowed = timeLimit;
+		if(hasDeadline && deadline - startTime < allowed)
+		{
+			allowed = deadline - startTime;
+		}
+		return allowed;
+	}
+}
@@ -0,0 +1,67 @@
+package cspSolver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning one solve of one puzzle. Disabled by default;
+ * enable <tt>cspSolver.Solve</tt> in the recording settings to record it.
+ * While disabled, begin() and shouldCommit() cost next to nothing and no
+ * fields are filled in.
+ */
+@Name("cspSolver.Solve")
+@Label("Solve")
+@Category({"Sudoku", "Solver"})
+@Description("One solve of one puzzle")
+@Enabled(false)
+@StackTrace(false)
+final class SolveEvent extends Event {
+
+	static final String SOLVED = "Solved";
+	static final String NO_SOLUTION = "No solution";
+	static final String CANCELLED = "Cancelled";
+	static final String OUT_OF_BUDGET = "Out of budget";
+	static final String FAILED = "Failed";
+
+	@Label("Solver")
+	String solver;
+
+	@Label("Configuration")
+	@Description("Heuristics and checks the solver was set up with")
+	String configuration;
+
+	@Label("N")
+	int n;
+
+	@Label("Assignments")
+	long assignments;
+
+	@Label("Backtracks")
+	long backtracks;
+
+	@Label("Outcome")
+	String outcome;
+
+	/**
+	 * Ends the event and commits it with the given fields, if it is recorded.
+	 */
+	void finish(String solver, String configuration, int n, long assignments, long backtracks, String outcome)
+	{
+		end();
+		if(shouldCommit())
+		{
+			this.solver = solver;
+			this.configuration = configuration;
+			this.n = n;
+			this.assignments = assignments;
+			this.backtracks = backtracks;
+			this.outcome = outcome;
+			commit();
+		}
+	}
+}
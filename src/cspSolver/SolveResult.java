@@ -0,0 +1,105 @@
+package cspSolver;
+
+import sudoku.SudokuFile;
+
+/**
+ * Outcome of a solve run with a SolveBudget: why it stopped, what it found,
+ * and the statistics it gathered up to then.
+ *
+ * @see SolveBudget
+ */
+public class SolveResult {
+
+	/**
+	 * Why a solve stopped. TimedOut, OutOfAssignments and OutOfSteps mean a
+	 * limit of the budget was spent; Cancelled means cancel() was called or the
+	 * solving thread was interrupted; Failed means the solver hit an error and
+	 * gave up before finishing the search.
+	 */
+	public enum Status { Solved, NoSolution, TimedOut, OutOfAssignments, OutOfSteps, Cancelled, Failed };
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final Status status;
+	private final boolean hasSolution;
+	private final SudokuFile solution;
+	private final long timeTakenNanos;
+	private final int numAssignments;
+	private final int numBacktracks;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	SolveResult(Status status, boolean hasSolution, SudokuFile solution, long timeTakenNanos, int numAssignments, int numBacktracks)
+	{
+		this.status = status;
+		this.hasSolution = hasSolution;
+		this.solution = solution;
+		this.timeTakenNanos = timeTakenNanos;
+		this.numAssignments = numAssignments;
+		this.numBacktracks = numBacktracks;
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	public Status getStatus()
+	{
+		return status;
+	}
+
+	/**
+	 * @return true if the solve stopped because a limit of its budget was spent
+	 */
+	public boolean isOutOfBudget()
+	{
+		return status == Status.TimedOut || status == Status.OutOfAssignments || status == Status.OutOfSteps;
+	}
+
+	public boolean isTimedOut()
+	{
+		return status == Status.TimedOut;
+	}
+
+	/**
+	 * @return true if a solution was found, which can also be the case when
+	 * counting solutions ran out of budget
+	 */
+	public boolean hasSolution()
+	{
+		return hasSolution;
+	}
+
+	/**
+	 * @return the solution if one was found, otherwise the unsolved puzzle
+	 */
+	public SudokuFile getSolution()
+	{
+		return solution;
+	}
+
+	public long getTimeTakenNanos()
+	{
+		return timeTakenNanos;
+	}
+
+	public int getNumAssignments()
+	{
+		return numAssignments;
+	}
+
+	public int getNumBacktracks()
+	{
+		return numBacktracks;
+	}
+
+	@Override
+	public String toString()
+	{
+		return status + " after " + timeTakenNanos / 1000000 + " ms, " + numAssignments + " assignments and " + numBacktracks + " backtracks";
+	}
+}
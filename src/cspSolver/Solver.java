@@ -0,0 +1,53 @@
+package cspSolver;
+
+import sudoku.SudokuFile;
+
+/**
+ * Common surface of the sudoku solvers, so runners such as PortfolioSolver can
+ * drive any of them the same way. A solver is used for a single solve.
+ */
+public interface Solver extends Runnable {
+
+	/**
+	 * Runs the solver on the calling thread until it finds a solution, proves
+	 * there is none, or is cancelled.
+	 */
+	void solve();
+
+	/**
+	 * Asks a running solve to stop as soon as possible. Safe to call from any thread.
+	 */
+	void cancel();
+
+	/**
+	 * @return true if a solution has been found, false otherwise.
+	 */
+	boolean hasSolution();
+
+	/**
+	 * @return solution if a solution has been found, otherwise returns the unsolved puzzle.
+	 */
+	SudokuFile getSolution();
+
+	/**
+	 * @return time taken by the last solve in milliseconds
+	 */
+	long getTimeTaken();
+
+	/**
+	 * @return number of values assigned during the search
+	 */
+	int getNumAssignments();
+
+	/**
+	 * @return number of assignments undone during the search
+	 */
+	int getNumBacktracks();
+
+	/**
+	 * @return why the last solve stopped, with its statistics
+	 */
+	SolveResult getResult();
+
+	void printSolverStats();
+}
@@ -0,0 +1,47 @@
+package cspSolver;
+
+/**
+ * Receives the events of a BTSolver search, for instrumentation. Attach one with
+ * BTSolver.setSolverListener(). With no listener attached the solver skips
+ * every call below and reads no clock.
+ *
+ * Callbacks run on the solving thread, in the middle of the search, so they
+ * should be cheap and must not change the network.
+ *
+ * @see SearchMetrics
+ */
+public interface SolverListener {
+
+	/**
+	 * Parts of a search node whose time is reported through phaseTimed().
+	 */
+	public enum Phase { VariableSelection, ValueOrdering, ConsistencyCheck, HeuristicCheck, Undo };
+
+	/**
+	 * Called once before the search, after the network has been built.
+	 */
+	void solveStarted(BTSolver solver);
+
+	/**
+	 * Called when the search selects a variable to branch on.
+	 * @param depth number of decisions above this node
+	 * @param branchingFactor number of values the variable will be tried with
+	 */
+	void nodeExpanded(int depth, int branchingFactor);
+
+	/**
+	 * Called after a value tried at <tt>depth</tt> has been undone.
+	 */
+	void backtracked(int depth);
+
+	/**
+	 * Called after each phase of a node with the time it took.
+	 * @param nanos elapsed time from System.nanoTime()
+	 */
+	void phaseTimed(Phase phase, long nanos);
+
+	/**
+	 * Called once when the search ends, however it ended.
+	 */
+	void solveFinished(BTSolver solver);
+}
@@ -1,89 +1,178 @@
-package cspSolver;
-
-import java.util.EmptyStackException;
-import java.util.Stack;
-
-/**
- * Represents the trail of changes made. This allows backtracking to occur. 
- * Trail follows the singleton design pattern. 
- */
-public class Trail {
-	
-	//===============================================================================
-	// Properties
-	//===============================================================================
-	
-	private static Stack<Object[]> trail = new Stack<Object[]>();
-	private static final Trail TRAIL = new Trail();
-	private static Stack<Integer> breadcrumbs = new Stack<Integer>();
-	private Trail()
-	{}
-	
-	/**
-	 * returns the trail.
-	 * @return
-	 */
-	public static Trail getTrail()
-	{
-		return TRAIL;
-	}
-	
-	public static void clearTrail()
-	{
-		trail.clear();
-	}
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-	
-	public int size()
-	{
-		return trail.size();
-	}
-	
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-	
-	/**
-	 * places a marker at the current point in the trail. Each time undo is called, the 
-	 * latest marker is popped and the trail 
-	 */
-	public void placeBreadCrumb()
-	{
-		breadcrumbs.add(trail.size());
-	}
-	/**
-	 * Adds a deep copy of a variable and its domain onto the trail.
-	 * @param v Variable to copy onto the trail
-	 */
-	public void push(Variable v)
-	{
-		Object[] vPair = { v, new Domain(v.getDomain())};
-		trail.push(vPair);
-	}
-	
-	/**
-	 * Pops changes pushed onto the trail until it reaches the latest marker. 
-	 * Also pops the latest marker.
-	 */
-	public void undo()
-	{
-		try
-		{
-			int targetSize = breadcrumbs.pop();
-			for (int size = trail.size(); size > targetSize; size--)
-			{
-				Object[] vPair = trail.pop();
-				Variable v = (Variable) vPair[0];
-				v.setDomain((Domain) vPair[1]);
-			}
-		}
-		catch (EmptyStackException e)
-		{
-			System.out.println("HEY There was an empty stack exception but we caught it.");
-		}
-
-	}
-}
-
+package cspSolver;
+
+/**
+ * Represents the trail of changes made. This allows backtracking to occur.
+ * Each ConstraintNetwork owns its own trail, so solvers working on different
+ * networks share no state.
+ *
+ * The trail is an undo log kept in parallel arrays: the index of the variable that changed,
+ * the words of its domain before the change, and the variable's previous trail
+ * stamp. A variable is recorded at most once per breadcrumb, so placing
+ * breadcrumbs and undoing them allocates nothing once the arrays have grown
+ * to the depth of the search.
+ */
+public class Trail {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private final ConstraintNetwork network;
+
+	private int[] variables = new int[256];
+	private long[] domainWords = new long[256];
+	private int[] previousStamps = new int[256];
+	private int stride = 1;		//longs of domainWords per entry
+	private int size;
+
+	private int[] breadcrumbs = new int[64];
+	private int[] breadcrumbStamps = new int[64];
+	private int numBreadcrumbs;
+
+	private int stamp;			//identifies the current breadcrumb
+	private int nextStamp = 1;
+	private long numPushes;
+
+	/**
+	 * @param network the network whose variables this trail records
+	 */
+	public Trail(ConstraintNetwork network)
+	{
+		this.network = network;
+	}
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * @return number of domains recorded since the trail was created
+	 */
+	public long getNumPushes()
+	{
+		return numPushes;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	/**
+	 * places a marker at the current point in the trail. Each time undo is called, the
+	 * latest marker is popped and the trail
+	 */
+	public void placeBreadCrumb()
+	{
+		if(numBreadcrumbs == breadcrumbs.length)
+		{
+			breadcrumbs = grow(breadcrumbs);
+			breadcrumbStamps = grow(breadcrumbStamps);
+		}
+		breadcrumbs[numBreadcrumbs] = size;
+		breadcrumbStamps[numBreadcrumbs] = stamp;
+		numBreadcrumbs++;
+		stamp = nextStamp++;
+	}
+	/**
+	 * Records the current domain of a variable on the trail, unless it was
+	 * already recorded since the latest marker.
+	 * @param v Variable to copy onto the trail
+	 */
+	public void push(Variable v)
+	{
+		if(v.getTrailStamp() == stamp)
+		{
+			return;
+		}
+		Domain d = v.getDomain();
+		if(d.wordCount() > stride)
+		{
+			widen(d.wordCount());
+		}
+		if(size == variables.length)
+		{
+			int capacity = variables.length * 2;
+			variables = grow(variables);
+			previousStamps = grow(previousStamps);
+			long[] words = new long[capacity * stride];
+			System.arraycopy(domainWords, 0, words, 0, size * stride);
+			domainWords = words;
+		}
+		int offset = size * stride;
+		for(int w = 0; w < stride; w++)
+		{
+			domainWords[offset + w] = d.word(w);
+		}
+		variables[size] = v.getIndex();
+		previousStamps[size] = v.getTrailStamp();
+		v.setTrailStamp(stamp);
+		size++;
+		numPushes++;
+	}
+
+	/**
+	 * Pops changes pushed onto the trail until it reaches the latest marker.
+	 * Also pops the latest marker.
+	 * @throws IllegalStateException if there is no marker, which means undo() was called more often than placeBreadCrumb()
+	 */
+	public void undo()
+	{
+		if(numBreadcrumbs == 0)
+		{
+			throw new IllegalStateException("Trail.undo() called without a matching breadcrumb");
+		}
+		numBreadcrumbs--;
+		int targetSize = breadcrumbs[numBreadcrumbs];
+		while(size > targetSize)
+		{
+			size--;
+			Variable v = network.getVariable(variables[size]);
+			v.restoreDomain(domainWords, size * stride, stride);
+			v.setTrailStamp(previousStamps[size]);
+		}
+		stamp = breadcrumbStamps[numBreadcrumbs];
+	}
+
+	/**
+	 * Forgets every change and marker on the trail.
+	 */
+	public void clear()
+	{
+		for(int i = 0; i < size; i++)
+		{
+			network.getVariable(variables[i]).setTrailStamp(0);
+		}
+		size = 0;
+		numBreadcrumbs = 0;
+		stamp = 0;
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	/**
+	 * Re-lays out the recorded domains so each entry holds <tt>newStride</tt> words.
+	 */
+	private void widen(int newStride)
+	{
+		long[] words = new long[variables.length * newStride];
+		for(int i = 0; i < size; i++)
+		{
+			System.arraycopy(domainWords, i * stride, words, i * newStride, stride);
+		}
+		domainWords = words;
+		stride = newStride;
+	}
+
+	private static int[] grow(int[] array)
+	{
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+}
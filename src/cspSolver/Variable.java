@@ -1,248 +1,344 @@
-package cspSolver;
-
-import java.util.Iterator;
-import java.util.List;
-
-public class Variable implements Iterable<Integer> 
-{
-	//===============================================================================
-	// Properties
-	//===============================================================================
-	
-	private static int namingCounter = 1;
-	private Domain domain;	
-	private int row, col, block;
-	private boolean modified;
-	private boolean unchangeable;
-	private String name;
-	private static Trail trail = Trail.getTrail();
-	
-	private int oldSize;
-	
-	//===============================================================================
-	// Constructors
-	//===============================================================================
-	
-	public Variable(List<Integer> possible_Values, int row, int col, int block)
-	{	
-		this.domain = new Domain(possible_Values);
-		if (size() == 1)
-		{
-			modified = true;
-			unchangeable = true;
-		}
-		this.row = row;
-		this.col = col;
-		this.block = block;
-		this.name = "v" + namingCounter++;
-		this.oldSize = size();
-	}
-	
-	public Variable(Variable v)
-	{
-		this.domain = v.domain;
-		this.row = v.row;
-		this.col = v.col;
-		this.block = v.block;
-		this.modified = v.modified;
-		this.name = v.name;
-	}
-	
-	//===============================================================================
-	// Accessors
-	//===============================================================================
-	
-	/**
-	 * Used for local search. Used to differentiate between intialized assignments
-	 * and user assignments.
-	 * @return false if this variable was assigned at initialization.
-	 */
-	public boolean isChangeable()
-	{
-		return !unchangeable;
-	}
-	
-	public boolean isAssigned()
-	{
-		return size() == 1 ? true : false;
-	}
-	
-	public boolean isModified()
-	{
-		return modified;
-	}
-	
-	public void setModified(boolean modified)
-	{
-		this.modified = modified;
-		this.domain.setModified(modified);
-	}
-	
-	public int row()
-	{
-		return row;
-	}
-	
-	public int col()
-	{
-		return col;
-	}
-	
-	public int block()
-	{
-		return block;
-	}
-	
-	/**
-	 * Returns the value currently assigned to the IntVariable.
-	 * If the IntVariable is currently unassigned, returns 0
-	 * @return 0 if IntVariable is unassigned, Assignment otherwise
-	 */
-	public Integer getAssignment()
-	{
-		if (!this.isAssigned())
-		{
-			return 0;
-		}
-		else
-		{
-			return domain.getValues().get(0);
-		}
-	}
-
-	@Override
-	public boolean equals(Object o) {
-		if (this == o) return true;
-		if (o == null || getClass() != o.getClass()) return false;
-
-		Variable integers = (Variable) o;
-
-		return name.equals(integers.name);
-	}
-
-	@Override
-	public int hashCode() {
-		return name.hashCode();
-	}
-
-	public List<Integer> Values()
-	{
-		return domain.getValues();
-	}
-	
-	public int size()
-	{
-		return domain.size();
-	}
-	
-	public Domain getDomain()
-	{
-		return domain;
-	}
-	
-	public String getName()
-	{
-		return name;
-	}
-	
-	//===============================================================================
-	// Modifiers
-	//===============================================================================
-	
-	/** 
-	 * Used for local Search
-	 * @param val new assignment
-	 */
-	public void assignValue(int val)
-	{
-		setDomain(new Domain(val));
-	}
-	
-	/**
-	 * Used for Backtracking. Adds the changed domain to the Trail.
-	 * @param d new domain
-	 */
-	public void updateDomain(Domain d)
-	{
-		methodModifiesDomain();
-		
-		if(!domain.equals(d))
-		{
-			domain = d;
-			modified = true;
-		}
-	}
-	
-	/**
-	 * Performs a change to the domain without changing the Trail.
-	 * @param d new domain 
-	 */
-	public void setDomain(Domain d)
-	{
-		if(!domain.equals(d))
-		{
-			domain = d;
-			modified = true;
-		}
-	}
-
-	public void removeValuesFromDomain(Iterable<Integer> values)
-	{
-		for(Integer i : values)
-			removeValueFromDomain(i);
-	}
-	
-	/**
-	 * Removes a single value from the domain of V.
-	 * @param val value to remove
-	 */
-	public void removeValueFromDomain(int val) {
-		methodModifiesDomain();
-		domain.remove(val);
-		this.modified=domain.isModified();
-	}
-	
-	//===============================================================================
-	// Helper Methods
-	//===============================================================================
-	
-	public void methodModifiesDomain()
-	{
-		int newSize = size();
-		if (oldSize > newSize)
-		{
-			oldSize = newSize;
-		}
-			
-		trail.push(this);
-	}
-	
-	//===============================================================================
-	// Iterator
-	//===============================================================================
-	
-	@Override
-	public Iterator<Integer> iterator() {
-		return domain.iterator();
-	}
-	
-	//===============================================================================
-	// String Representation
-	//===============================================================================
-	public String toString()
-	{
-		//prints node stats
-		StringBuilder sb = new StringBuilder();
-		sb.append(" Name: "+name);
-		sb.append("\tdomain: {");
-		for(Integer i : domain)
-		{
-			sb.append(i + ",");	
-		}
-		sb.deleteCharAt(sb.length()-1);
-		sb.append("}");
-		return sb.toString();
-	}
-
-	
-}
+package cspSolver;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Variable implements Iterable<Integer> 
+{
+	//===============================================================================
+	// Properties
+	//===============================================================================
+	
+	private static final AtomicInteger namingCounter = new AtomicInteger(1);
+	private Domain domain;	
+	private int row, col, block;
+	private boolean modified;
+	private boolean unchangeable;
+	private String name;
+	private int index = -1;
+	private int trailStamp;
+	private ConstraintNetwork network;
+	
+	private int oldSize;
+	private int lastSize;		//size as of the last domain change, to count the values removed
+	
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+	
+	public Variable(List<Integer> possible_Values, int row, int col, int block)
+	{	
+		this.domain = new Domain(possible_Values);
+		if (size() == 1)
+		{
+			modified = true;
+			unchangeable = true;
+		}
+		this.row = row;
+		this.col = col;
+		this.block = block;
+		this.name = "v" + namingCounter.getAndIncrement();
+		this.oldSize = size();
+		this.lastSize = size();
+	}
+	
+	public Variable(Variable v)
+	{
+		this.domain = v.domain;
+		this.row = v.row;
+		this.col = v.col;
+		this.block = v.block;
+		this.modified = v.modified;
+		this.name = v.name;
+		this.lastSize = v.size();
+	}
+	
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+	
+	/**
+	 * Used for local search. Used to differentiate between intialized assignments
+	 * and user assignments.
+	 * @return false if this variable was assigned at initialization.
+	 */
+	public boolean isChangeable()
+	{
+		return !unchangeable;
+	}
+	
+	public boolean isAssigned()
+	{
+		return size() == 1 ? true : false;
+	}
+	
+	public boolean isModified()
+	{
+		return modified;
+	}
+	
+	public void setModified(boolean modified)
+	{
+		this.modified = modified;
+		this.domain.setModified(modified);
+	}
+	
+	public int row()
+	{
+		return row;
+	}
+	
+	public int col()
+	{
+		return col;
+	}
+	
+	public int block()
+	{
+		return block;
+	}
+	
+	/**
+	 * Returns the value currently assigned to the IntVariable.
+	 * If the IntVariable is currently unassigned, returns 0
+	 * @return 0 if IntVariable is unassigned, Assignment otherwise
+	 */
+	public Integer getAssignment()
+	{
+		if (!this.isAssigned())
+		{
+			return 0;
+		}
+		else
+		{
+			return domain.first();
+		}
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+
+		Variable integers = (Variable) o;
+
+		return name.equals(integers.name);
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	public List<Integer> Values()
+	{
+		return domain.getValues();
+	}
+	
+	public int size()
+	{
+		return domain.size();
+	}
+	
+	public Domain getDomain()
+	{
+		return domain;
+	}
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	/**
+	 * @return position of this variable in its ConstraintNetwork, -1 if it has not been added to one
+	 */
+	public int getIndex()
+	{
+		return index;
+	}
+	
+	/**
+	 * Called when the variable is added to a network. Domain changes made for 
+	 * backtracking are recorded on that network's Trail.
+	 */
+	void setNetwork(ConstraintNetwork network, int index)
+	{
+		this.network = network;
+		this.index = index;
+	}
+	
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+	
+	/** 
+	 * Used for local Search
+	 * @param val new assignment
+	 */
+	public void assignValue(int val)
+	{
+		setDomain(new Domain(val));
+	}
+	
+	/**
+	 * Used for Backtracking. Adds the changed domain to the Trail.
+	 * @param d new domain
+	 */
+	public void updateDomain(Domain d)
+	{
+		methodModifiesDomain();
+		
+		if(!domain.equals(d))
+		{
+			domain = d;
+			modified = true;
+			domainChanged();
+		}
+	}
+	
+	/**
+	 * Used for Backtracking. Narrows the domain to a single value in place,
+	 * adding the old domain to the Trail.
+	 * @param val new assignment
+	 */
+	public void updateDomain(int val)
+	{
+		methodModifiesDomain();
+		domain.setSingleValue(val);
+		modified = true;
+		domainChanged();
+	}
+	
+	/**
+	 * Performs a change to the domain without changing the Trail.
+	 * @param d new domain 
+	 */
+	public void setDomain(Domain d)
+	{
+		if(!domain.equals(d))
+		{
+			domain = d;
+			modified = true;
+			domainChanged();
+		}
+	}
+
+	public void removeValuesFromDomain(Iterable<Integer> values)
+	{
+		for(Integer i : values)
+			removeValueFromDomain(i);
+	}
+	
+	/**
+	 * Removes a set of values from the domain in one step.
+	 * @param values bitset of the values to remove, bit v-1 standing for v
+	 */
+	void removeValuesFromDomain(long[] values)
+	{
+		if(!domain.intersects(values))
+		{
+			return;
+		}
+		methodModifiesDomain();
+		domain.removeWords(values);
+		this.modified=domain.isModified();
+		domainChanged();
+	}
+	
+	/**
+	 * Removes a single value from the domain of V.
+	 * @param val value to remove
+	 */
+	public void removeValueFromDomain(int val) {
+		if(!domain.contains(val))
+		{
+			return;
+		}
+		methodModifiesDomain();
+		domain.remove(val);
+		this.modified=domain.isModified();
+		domainChanged();
+	}
+	
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+	
+	public void methodModifiesDomain()
+	{
+		int newSize = size();
+		if (oldSize > newSize)
+		{
+			oldSize = newSize;
+		}
+			
+		if(network != null)
+		{
+			network.getTrail().push(this);
+		}
+	}
+	
+	/**
+	 * Restores a domain recorded by the Trail.
+	 */
+	void restoreDomain(long[] words, int offset, int count)
+	{
+		domain.setWords(words, offset, count);
+		modified = true;
+		domainChanged();
+	}
+	
+	/**
+	 * Lets the network keep its domain size index up to date.
+	 */
+	private void domainChanged()
+	{
+		int size = size();
+		if(network != null)
+		{
+			network.domainSizeChanged(this, lastSize - size);
+		}
+		lastSize = size;
+	}
+	
+	int getTrailStamp()
+	{
+		return trailStamp;
+	}
+	
+	void setTrailStamp(int stamp)
+	{
+		this.trailStamp = stamp;
+	}
+	
+	//===============================================================================
+	// Iterator
+	//===============================================================================
+	
+	@Override
+	public Iterator<Integer> iterator() {
+		return domain.iterator();
+	}
+	
+	//===============================================================================
+	// String Representation
+	//===============================================================================
+	public String toString()
+	{
+		//prints node stats
+		StringBuilder sb = new StringBuilder();
+		sb.append(" Name: "+name);
+		sb.append("\tdomain: {");
+		for(Integer i : domain)
+		{
+			sb.append(i + ",");	
+		}
+		sb.deleteCharAt(sb.length()-1);
+		sb.append("}");
+		return sb.toString();
+	}
+
+	
+}
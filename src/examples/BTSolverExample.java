@@ -1,47 +1,47 @@
-package examples;
-
-import cspSolver.BTSolver;
-import cspSolver.BTSolver.ConsistencyCheck;
-import cspSolver.BTSolver.ValueSelectionHeuristic;
-import cspSolver.BTSolver.VariableSelectionHeuristic;
-import sudoku.SudokuBoardGenerator;
-import sudoku.SudokuFile;
-
-public class BTSolverExample {
-
-	public static void main(String[] args)
-	{
-		SudokuFile sf = SudokuBoardGenerator.generateBoard(9, 3, 3, 12);
-		BTSolver solver = new BTSolver(sf);
-		
-		solver.setConsistencyChecks(ConsistencyCheck.None);
-		solver.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
-		solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.None);
-		
-		Thread t1 = new Thread(solver);
-		try
-		{
-			t1.start();
-			t1.join(60000);
-			if(t1.isAlive())
-			{
-				t1.interrupt();
-			}
-		}catch(InterruptedException e)
-		{
-		}
-
-
-		if(solver.hasSolution())
-		{
-			solver.printSolverStats();
-			System.out.println(solver.getSolution());	
-		}
-
-		else
-		{
-			System.out.println("Failed to find a solution");
-		}
-
-	}
-}
+package examples;
+
+import cspSolver.BTSolver;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.SudokuBoardGenerator;
+import sudoku.SudokuFile;
+
+public class BTSolverExample {
+
+	public static void main(String[] args)
+	{
+		SudokuFile sf = SudokuBoardGenerator.generateBoard(9, 3, 3, 12);
+		BTSolver solver = new BTSolver(sf);
+		
+		solver.setConsistencyChecks(ConsistencyCheck.None);
+		solver.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+		solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.None);
+		
+		Thread t1 = new Thread(solver);
+		try
+		{
+			t1.start();
+			t1.join(60000);
+			if(t1.isAlive())
+			{
+				t1.interrupt();
+			}
+		}catch(InterruptedException e)
+		{
+		}
+
+
+		if(solver.hasSolution())
+		{
+			solver.printSolverStats();
+			System.out.println(solver.getSolution());	
+		}
+
+		else
+		{
+			System.out.println("Failed to find a solution");
+		}
+
+	}
+}
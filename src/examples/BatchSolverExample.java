@@ -0,0 +1,49 @@
+package examples;
+
+import java.io.File;
+import java.util.List;
+
+import scripts.BTSolverStats;
+import sudoku.SudokuFile;
+import cspSolver.BTSolver;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import cspSolver.BatchSolver;
+import cspSolver.Solver;
+
+public class BatchSolverExample {
+
+	public static void main(String[] args)
+	{
+		List<SudokuFile> puzzles = BTSolverStats.getPuzzlesFromFolder(new File("ExampleSudokuFiles/"));
+
+		BatchSolver.SolverFactory factory = new BatchSolver.SolverFactory() {
+			@Override
+			public Solver create(SudokuFile sf)
+			{
+				BTSolver solver = new BTSolver(sf);
+				solver.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+				solver.setValueSelectionHeuristic(ValueSelectionHeuristic.LeastConstrainingValue);
+				solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+				solver.setHeuristicCheck(BTSolver.HeuristicCheck.None);
+				return solver;
+			}
+		};
+
+		long startTime = System.currentTimeMillis();
+		int solved = 0;
+		try(BatchSolver batch = new BatchSolver(factory, 60000))
+		{
+			for(BatchSolver.Result result : batch.solveAll(puzzles))
+			{
+				System.out.println(result);
+				if(result.isSolution())
+				{
+					solved++;
+				}
+			}
+		}
+		System.out.println("Solved " + solved + "/" + puzzles.size() + " puzzles in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+}
@@ -0,0 +1,41 @@
+package examples;
+
+import cspSolver.DLXSolver;
+import sudoku.SudokuBoardGenerator;
+import sudoku.SudokuFile;
+
+public class DLXSolverExample {
+
+	public static void main(String[] args)
+	{
+		SudokuFile sf = SudokuBoardGenerator.generateBoard(9, 3, 3, 12);
+		DLXSolver solver = new DLXSolver(sf);
+
+		Thread t1 = new Thread(solver);
+		try
+		{
+			t1.start();
+			t1.join(60000);
+			if(t1.isAlive())
+			{
+				solver.cancel();
+				t1.join();
+			}
+		}catch(InterruptedException e)
+		{
+		}
+
+
+		if(solver.hasSolution())
+		{
+			solver.printSolverStats();
+			System.out.println(solver.getSolution());	
+		}
+
+		else
+		{
+			System.out.println("Failed to find a solution");
+		}
+
+	}
+}
@@ -0,0 +1,69 @@
+package examples;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import cspSolver.BTSolver;
+import cspSolver.DLXSolver;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+
+/**
+ * Records the solver events with Flight Recorder and prints them. The same
+ * events can be recorded from the command line without changing any code:
+ *
+ * java -XX:StartFlightRecording:settings=solver.jfc,filename=solve.jfr ...
+ *
+ * with solver.jfc enabling cspSolver.Solve, cspSolver.Backtrack and cspSolver.Propagation.
+ */
+public class FlightRecorderExample {
+
+	public static void main(String[] args) throws IOException
+	{
+		SudokuFile sf = SudokuBoardReader.readFile(args.length > 0 ? args[0] : "ExampleSudokuFiles/PH3.txt");
+		Path file = Files.createTempFile("solve", ".jfr");
+
+		try(Recording recording = new Recording())
+		{
+			recording.enable("cspSolver.Solve");
+			//record every backtrack and propagation pass rather than only the slow ones
+			recording.enable("cspSolver.Backtrack").withThreshold(Duration.ZERO);
+			recording.enable("cspSolver.Propagation").withThreshold(Duration.ofNanos(50000));
+			recording.start();
+
+			BTSolver solver = new BTSolver(sf);
+			solver.setConsistencyChecks(ConsistencyCheck.ArcConsistency);
+			solver.setHeuristicCheck(HeuristicCheck.NakedPairs);
+			solver.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+			solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+			solver.solve();
+			new DLXSolver(sf).solve();
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		int numEvents = 0;
+		for(RecordedEvent event : RecordingFile.readAllEvents(file))
+		{
+			if(event.getEventType().getName().equals("cspSolver.Solve"))
+			{
+				System.out.println(String.format("%-16s %-70s %s in %d us, %d assignments, %d backtracks",
+						event.getString("solver"), event.getString("configuration"), event.getString("outcome"),
+						event.getDuration().toNanos() / 1000, event.getLong("assignments"), event.getLong("backtracks")));
+			}
+			numEvents++;
+		}
+		System.out.println(numEvents + " events recorded in " + file);
+		Files.delete(file);
+	}
+}
@@ -0,0 +1,30 @@
+package examples;
+
+import cspSolver.PortfolioSolver;
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+
+public class PortfolioSolverExample {
+
+	public static void main(String[] args)
+	{
+		SudokuFile sf = SudokuBoardReader.readFile("ExampleSudokuFiles/PH3.txt");
+		PortfolioSolver solver = new PortfolioSolver(sf);
+		solver.addDefaultConfigurations();
+		solver.addLocalSolver();
+		solver.setTimeout(60000);
+
+		solver.solve();
+
+		if(solver.hasSolution())
+		{
+			solver.printSolverStats();
+			System.out.println(solver.getSolution());
+		}
+
+		else
+		{
+			System.out.println("Failed to find a solution");
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package examples;
+
+import cspSolver.BTSolver;
+import cspSolver.SearchMetrics;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+
+public class SearchMetricsExample {
+
+	public static void main(String[] args)
+	{
+		SudokuFile sf = SudokuBoardReader.readFile(args.length > 0 ? args[0] : "ExampleSudokuFiles/PH3.txt");
+		BTSolver solver = new BTSolver(sf);
+
+		solver.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+		solver.setHeuristicCheck(HeuristicCheck.NakedPairs);
+		solver.setValueSelectionHeuristic(ValueSelectionHeuristic.LeastConstrainingValue);
+		solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+
+		SearchMetrics metrics = new SearchMetrics();
+		solver.setSolverListener(metrics);
+		solver.solve();
+
+		System.out.println(solver.hasSolution() ? "Solved in " + solver.getTimeTakenNanos() / 1000 + " us" : "Failed to find a solution");
+		metrics.printMetrics();
+	}
+}
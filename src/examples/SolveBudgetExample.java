@@ -0,0 +1,59 @@
+package examples;
+
+import java.util.concurrent.TimeUnit;
+
+import cspSolver.BTSolver;
+import cspSolver.LocalSolver;
+import cspSolver.SolveBudget;
+import cspSolver.SolveResult;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+
+public class SolveBudgetExample {
+
+	public static void main(String[] args)
+	{
+		SudokuFile sf = SudokuBoardReader.readFile(args.length > 0 ? args[0] : "ExampleSudokuFiles/PH5.txt");
+
+		//a plain backtracking search, with too small a budget to finish
+		SolveBudget budget = new SolveBudget();
+		budget.setTimeLimit(20, TimeUnit.MILLISECONDS);
+		BTSolver bt = new BTSolver(sf);
+		bt.setConsistencyChecks(ConsistencyCheck.None);
+		bt.setHeuristicCheck(HeuristicCheck.None);
+		bt.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+		bt.setVariableSelectionHeuristic(VariableSelectionHeuristic.None);
+		System.out.println("BTSolver, 20 ms: " + bt.solve(budget));
+
+		budget = new SolveBudget();
+		budget.setMaxAssignments(100);
+		bt = new BTSolver(sf);
+		bt.setConsistencyChecks(ConsistencyCheck.None);
+		bt.setHeuristicCheck(HeuristicCheck.None);
+		bt.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+		bt.setVariableSelectionHeuristic(VariableSelectionHeuristic.None);
+		System.out.println("BTSolver, 100 assignments: " + bt.solve(budget));
+
+		//the same budgets are enough once propagation does most of the work
+		budget = new SolveBudget();
+		budget.setTimeLimit(1, TimeUnit.SECONDS);
+		budget.setMaxAssignments(1000);
+		bt = new BTSolver(sf);
+		bt.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+		bt.setHeuristicCheck(HeuristicCheck.HiddenSingles);
+		bt.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+		bt.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+		SolveResult result = bt.solve(budget);
+		System.out.println("BTSolver with propagation: " + result);
+		System.out.println(result.getSolution());
+
+		budget = new SolveBudget();
+		budget.setMaxSteps(2000);
+		budget.setTimeLimit(2, TimeUnit.SECONDS);
+		System.out.println("LocalSolver, 2000 steps: " + new LocalSolver(sf).solve(budget));
+	}
+}
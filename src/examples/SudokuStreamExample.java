@@ -0,0 +1,36 @@
+package examples;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+import sudoku.SudokuFile;
+import sudoku.SudokuStreamReader;
+import cspSolver.DLXSolver;
+
+public class SudokuStreamExample {
+
+	public static void main(String[] args) throws IOException
+	{
+		Path file = Paths.get(args.length > 0 ? args[0] : "ExampleSudokuFiles/PE1.txt");
+
+		long startTime = System.currentTimeMillis();
+		int puzzles = 0;
+		int solved = 0;
+		try(SudokuStreamReader reader = SudokuStreamReader.open(file))
+		{
+			for(Iterator<SudokuFile> it = reader; it.hasNext();)
+			{
+				DLXSolver solver = new DLXSolver(it.next());
+				solver.solve();
+				puzzles++;
+				if(solver.hasSolution())
+				{
+					solved++;
+				}
+			}
+		}
+		System.out.println("Solved " + solved + "/" + puzzles + " puzzles from " + file + " in " + (System.currentTimeMillis() - startTime) + " ms");
+	}
+}
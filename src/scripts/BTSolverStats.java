@@ -1,229 +1,360 @@
-package scripts;
-
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.List;
-
-import sudoku.SudokuBoardReader;
-import sudoku.SudokuFile;
-import cspSolver.BTSolver;
-import cspSolver.BTSolver.ConsistencyCheck;
-import cspSolver.BTSolver.ValueSelectionHeuristic;
-import cspSolver.BTSolver.VariableSelectionHeuristic;
-
-public class BTSolverStats {
-	public static List<SudokuFile> getPuzzlesFromFolder(File folder) {
-	    List<SudokuFile> puzzles = new ArrayList<SudokuFile>();
-		for (File fileEntry : folder.listFiles()) {
-    		SudokuFile sfPE = SudokuBoardReader.readFile(fileEntry.getPath());
-    		if(sfPE.getN() != 0)
-    		{
-    			puzzles.add(sfPE);
-    		}
-	    }
-		return puzzles;
-	}
-	
-	public static runStats testSolver(BTSolver solver, ConsistencyCheck consistencyCheck, ValueSelectionHeuristic valueSelect, VariableSelectionHeuristic varSelect, BTSolver.HeuristicCheck heurCheck)
-	{
-		solver.setConsistencyChecks(consistencyCheck);
-		solver.setValueSelectionHeuristic(valueSelect);
-		solver.setVariableSelectionHeuristic(varSelect);
-		solver.setHeuristicCheck(heurCheck);
-		
-		Thread t1 = new Thread(solver);
-		try
-		{
-			t1.start();
-			t1.join(60000);
-			if(t1.isAlive())
-			{
-				t1.interrupt();
-			}
-		}catch(InterruptedException e)
-		{
-		}
-		long runtime;
-		int numAssignments;
-		int numBacktracks;
-		boolean isSolution;
-		runStats rs;
-		runtime = solver.getTimeTaken();
-		numAssignments = solver.getNumAssignments();
-		numBacktracks = solver.getNumBacktracks();
-		isSolution = solver.hasSolution();
-		rs = new runStats(runtime, numAssignments, numBacktracks, isSolution);
-		return rs;
-	}
-	
-	public static void main(String[] args)
-	{
-		long startTime = System.currentTimeMillis();
-
-		File results = new File("BTSolverResultsTable.txt");
-		File folder = new File("ExampleSudokuFiles/");
-
-		List<SudokuFile> puzzles = getPuzzlesFromFolder(folder);
-		List<runStats> easyStats = new ArrayList<runStats>();
-		List<runStats> mediumStats = new ArrayList<runStats>();
-		List<runStats> hardStats = new ArrayList<runStats>();
-
-		List<SudokuFile> easyPuzzles = puzzles.subList(0,5);
-		List<SudokuFile> mediumPuzzles = puzzles.subList(55,60);
-		List<SudokuFile> hardPuzzles = puzzles.subList(50,55);
-
-		ArrayList<String> output = new ArrayList<>();
-
-		int i = 1;
-		outer:
-		for(ConsistencyCheck consistencyCheck : ConsistencyCheck.values())
-		{
-			for(BTSolver.HeuristicCheck heuristicCheck : BTSolver.HeuristicCheck.values())
-			{
-				for(VariableSelectionHeuristic variableSelect : VariableSelectionHeuristic.values())
-				{
-					for(ValueSelectionHeuristic valueSelect : ValueSelectionHeuristic.values())
-					{
-						System.out.println("Starting next combination.");
-						easyStats.clear();
-						mediumStats.clear();
-						hardStats.clear();
-
-						for(SudokuFile puzzle : easyPuzzles)
-							easyStats.add(testSolver(new BTSolver(puzzle),consistencyCheck,valueSelect,variableSelect,heuristicCheck));
-						for(SudokuFile puzzle : mediumPuzzles)
-							mediumStats.add(testSolver(new BTSolver(puzzle),consistencyCheck,valueSelect,variableSelect,heuristicCheck));
-						for(SudokuFile puzzle : hardPuzzles)
-							hardStats.add(testSolver(new BTSolver(puzzle),consistencyCheck,valueSelect,variableSelect,heuristicCheck));
-
-						output.add(statsToString(consistencyCheck,valueSelect,variableSelect,heuristicCheck,easyStats,mediumStats,hardStats));
-						writeStrings(results,output);
-
-						System.out.println("Completed combination "+i+"/72.");
-						i++;
-					}
-				}
-			}
-		}
-
-		long elapsedTime = System.currentTimeMillis()-startTime;
-		System.out.println("Total elapsed time is: "+elapsedTime+" milliseconds.");
-	}
-
-	private static void writeStrings(File file, List<String> strings)
-	{
-		try{
-			if(file.exists())
-				file.delete();
-
-			FileWriter fw = new FileWriter(file);
-
-			for(String str : strings)
-				fw.write(str+System.lineSeparator());
-
-			fw.flush();
-			fw.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-	}
-
-	private static String statsToString(ConsistencyCheck consistencyCheck,
-										ValueSelectionHeuristic valueSelectionHeuristic,
-										VariableSelectionHeuristic variableSelectionHeuristic,
-										BTSolver.HeuristicCheck heuristicCheck,
-										List<runStats> easy,
-										List<runStats> medium,
-										List<runStats> hard)
-	{
-		int easyPercent = 0;
-		for(runStats s : easy)
-			if(s.isSolution())
-				easyPercent++;
-		easyPercent = (int)(((double)easyPercent/(double)easy.size())*100);
-
-		int medPercent = 0;
-		for(runStats s : medium)
-			if(s.isSolution())
-				medPercent++;
-		medPercent = (int)(((double)medPercent/(double)medium.size())*100);
-
-		int hardPercent = 0;
-		for(runStats s : hard)
-			if(s.isSolution())
-				hardPercent++;
-		hardPercent = (int)(((double)hardPercent/(double)hard.size())*100);
-
-		List<runStats> all = new ArrayList<>(easy);
-		all.addAll(medium);
-		all.addAll(hard);
-
-		long totalRunTime = 0;
-		long totalAssignments = 0;
-		long totalBackTracks = 0;
-		int totalSuccessful = 0;
-
-		for(runStats rs : all)
-		{
-			if(rs.isSolution())
-			{
-				totalRunTime += rs.getRuntime();
-				totalAssignments += rs.getNumAssignments();
-				totalBackTracks += rs.getNumBacktracks();
-				totalSuccessful++;
-			}
-		}
-
-		boolean completedNone = false;
-		if(totalSuccessful == 0)
-		{
-			totalSuccessful = 1;
-			completedNone = true;
-		}
-
-		StringBuilder builder = new StringBuilder();
-		builder
-				.append(centerPad(consistencyCheck.name(),16)) //Consistency check type
-				.append(" | ")
-				.append(centerPad(heuristicCheck.name(),13)) //Heuristic type
-				.append(" | ")
-				.append(centerPad(variableSelectionHeuristic.name(),22)) //Variable select type
-				.append(" | ")
-				.append(centerPad(valueSelectionHeuristic.name(),23)) //Value select type
-				.append(" | ");
-
-		builder
-				.append(centerPad(String.valueOf((int)(totalRunTime/totalSuccessful)),15)) //Average run time
-				.append(" | ")
-				.append(centerPad(String.valueOf((int)(totalAssignments/totalSuccessful)),10)) //Average assignments
-				.append(" | ")
-				.append(centerPad(String.valueOf((int)(totalBackTracks/totalSuccessful)),10)) //Average backtracks
-				.append(" | ");
-
-		builder
-				.append(centerPad(String.valueOf((int)easyPercent),4)) //Percent of easy problems finished
-				.append(" | ")
-				.append(centerPad(String.valueOf((int)medPercent),4)) //Percent of medium problems finished
-				.append(" | ")
-				.append(centerPad(String.valueOf((int)hardPercent),4))//Percent of hard problems finished
-				.append(" | ");
-
-		if(completedNone)
-			builder.append(centerPad("*None solved*","*None solved*".length()+2)).append(" | ");
-
-		return builder.toString();
-	}
-
-	private static String centerPad(String string, int size)
-	{
-		int padSize = size - string.length();
-		int padStart = string.length() + padSize / 2;
-
-		string = String.format("%" + padStart + "s", string);
-		string = String.format("%-" + size  + "s", string);
-		return string;
-	}
-}
+package scripts;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+import cspSolver.BTSolver;
+import cspSolver.BatchSolver;
+import cspSolver.Solver;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+
+public class BTSolverStats {
+
+	private static final long DEADLINE = 60000;
+
+	public static List<SudokuFile> getPuzzlesFromFolder(File folder) {
+	    List<SudokuFile> puzzles = new ArrayList<SudokuFile>();
+		for (File fileEntry : getPuzzleFilesFromFolder(folder)) {
+			puzzles.add(SudokuBoardReader.readFile(fileEntry.getPath()));
+	    }
+		return puzzles;
+	}
+
+	/**
+	 * @return the files of the folder holding a puzzle, sorted by name so indices into the list are stable
+	 */
+	public static List<File> getPuzzleFilesFromFolder(File folder) {
+		File[] files = folder.listFiles();
+		Arrays.sort(files);
+	    List<File> puzzleFiles = new ArrayList<File>();
+		for (File fileEntry : files) {
+    		SudokuFile sfPE = SudokuBoardReader.readFile(fileEntry.getPath());
+    		if(sfPE.getN() != 0)
+    		{
+    			puzzleFiles.add(fileEntry);
+    		}
+	    }
+		return puzzleFiles;
+	}
+	
+	/**
+	 * Runs every heuristic combination on every test puzzle. Each (combination, puzzle)
+	 * cell is an independent solve on a BatchSolver, so the sweep keeps all cores busy and
+	 * every cell gets the same deadline. Finished cells are appended to
+	 * BTSolverResultsCells.txt in sweep order, and cells already in that
+	 * file are skipped, so an interrupted sweep picks up where it stopped. The table
+	 * is built from the cells once all of them are done.
+	 *
+	 * Usage: BTSolverStats [threads]
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		long startTime = System.currentTimeMillis();
+		int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+		File results = new File("BTSolverResultsTable.txt");
+		File cells = new File("BTSolverResultsCells.txt");
+		File folder = new File("ExampleSudokuFiles/");
+
+		List<File> puzzles = getPuzzleFilesFromFolder(folder);
+		List<File> easyPuzzles = puzzles.subList(0,5);
+		List<File> mediumPuzzles = puzzles.subList(55,60);
+		List<File> hardPuzzles = puzzles.subList(50,55);
+
+		Map<File, SudokuFile> boards = new HashMap<File, SudokuFile>();
+		List<File> tested = new ArrayList<File>(easyPuzzles);
+		tested.addAll(mediumPuzzles);
+		tested.addAll(hardPuzzles);
+		for(File puzzle : tested)
+			boards.put(puzzle, SudokuBoardReader.readFile(puzzle.getPath()));
+
+		Map<String, runStats> finished = readCells(cells);
+		if(!finished.isEmpty())
+			System.out.println("Resuming, " + finished.size() + " cells already finished.");
+
+		List<BatchSolver.Task> sweep = new ArrayList<BatchSolver.Task>();
+		List<String> keys = new ArrayList<String>();
+		for(ConsistencyCheck consistencyCheck : ConsistencyCheck.values())
+			for(BTSolver.HeuristicCheck heuristicCheck : BTSolver.HeuristicCheck.values())
+				for(VariableSelectionHeuristic variableSelect : VariableSelectionHeuristic.values())
+					for(ValueSelectionHeuristic valueSelect : ValueSelectionHeuristic.values())
+					{
+						BatchSolver.SolverFactory factory = configure(consistencyCheck,valueSelect,variableSelect,heuristicCheck);
+						for(File puzzle : tested)
+						{
+							String key = cellKey(consistencyCheck,valueSelect,variableSelect,heuristicCheck,puzzle);
+							if(!finished.containsKey(key))
+							{
+								sweep.add(new BatchSolver.Task(boards.get(puzzle), factory));
+								keys.add(key);
+							}
+						}
+					}
+		int numCells = sweep.size();
+
+		try(BatchSolver batch = new BatchSolver(DEADLINE, numThreads);
+			Writer out = openCells(cells))
+		{
+			Iterator<BatchSolver.Result> solved = batch.solveTasks(sweep.iterator());
+			for(int i = 1; i <= numCells; i++)
+			{
+				BatchSolver.Result result = solved.next();
+				if(result.isFailed())
+				{
+					System.err.println("Cell failed, it will be rerun next time: " + result.getCause());
+					continue;
+				}
+				String line = keys.get(result.getIndex()) + " " + result.getRuntime() + " " + result.getNumAssignments()
+						+ " " + result.getNumBacktracks() + " " + result.isSolution();
+				out.write(line + System.lineSeparator());
+				out.flush();
+				parseCell(line, finished);
+				System.out.println("Completed cell "+i+"/"+numCells+".");
+			}
+		}
+
+		ArrayList<String> output = new ArrayList<>();
+		for(ConsistencyCheck consistencyCheck : ConsistencyCheck.values())
+			for(BTSolver.HeuristicCheck heuristicCheck : BTSolver.HeuristicCheck.values())
+				for(VariableSelectionHeuristic variableSelect : VariableSelectionHeuristic.values())
+					for(ValueSelectionHeuristic valueSelect : ValueSelectionHeuristic.values())
+					{
+						List<runStats> easyStats = collectCells(finished,easyPuzzles,consistencyCheck,valueSelect,variableSelect,heuristicCheck);
+						List<runStats> mediumStats = collectCells(finished,mediumPuzzles,consistencyCheck,valueSelect,variableSelect,heuristicCheck);
+						List<runStats> hardStats = collectCells(finished,hardPuzzles,consistencyCheck,valueSelect,variableSelect,heuristicCheck);
+						output.add(statsToString(consistencyCheck,valueSelect,variableSelect,heuristicCheck,easyStats,mediumStats,hardStats));
+					}
+		writeStrings(results,output);
+
+		long elapsedTime = System.currentTimeMillis()-startTime;
+		System.out.println("Total elapsed time is: "+elapsedTime+" milliseconds.");
+	}
+
+	/**
+	 * @return a factory for BTSolvers with the given heuristics
+	 */
+	private static BatchSolver.SolverFactory configure(final ConsistencyCheck consistencyCheck,
+								final ValueSelectionHeuristic valueSelect,
+								final VariableSelectionHeuristic variableSelect,
+								final BTSolver.HeuristicCheck heuristicCheck)
+	{
+		return new BatchSolver.SolverFactory() {
+			@Override
+			public Solver create(SudokuFile sf)
+			{
+				BTSolver solver = new BTSolver(sf);
+				solver.setConsistencyChecks(consistencyCheck);
+				solver.setValueSelectionHeuristic(valueSelect);
+				solver.setVariableSelectionHeuristic(variableSelect);
+				solver.setHeuristicCheck(heuristicCheck);
+				return solver;
+			}
+		};
+	}
+
+	private static String cellKey(ConsistencyCheck consistencyCheck,
+								ValueSelectionHeuristic valueSelect,
+								VariableSelectionHeuristic variableSelect,
+								BTSolver.HeuristicCheck heuristicCheck,
+								File puzzle)
+	{
+		return consistencyCheck.name() + " " + heuristicCheck.name() + " " + variableSelect.name()
+				+ " " + valueSelect.name() + " " + puzzle.getName();
+	}
+
+	/**
+	 * Reads the cells finished by earlier runs. A line cut short by a killed run is ignored.
+	 */
+	private static Map<String, runStats> readCells(File file) throws IOException
+	{
+		Map<String, runStats> cells = new HashMap<String, runStats>();
+		if(!file.exists())
+			return cells;
+		try(BufferedReader in = new BufferedReader(new FileReader(file)))
+		{
+			String line;
+			while((line = in.readLine()) != null)
+				parseCell(line, cells);
+		}
+		return cells;
+	}
+
+	private static void parseCell(String line, Map<String, runStats> cells)
+	{
+		String[] fields = line.trim().split("\\s+");
+		if(fields.length != 9 || !(fields[8].equals("true") || fields[8].equals("false")))
+			return;
+		try
+		{
+			runStats rs = new runStats(Long.parseLong(fields[5]), Integer.parseInt(fields[6]),
+					Integer.parseInt(fields[7]), Boolean.parseBoolean(fields[8]));
+			cells.put(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3] + " " + fields[4], rs);
+		}
+		catch(NumberFormatException e)
+		{
+		}
+	}
+
+	/**
+	 * Opens the cell file for appending, starting on a fresh line if a killed run left a partial one.
+	 */
+	private static Writer openCells(File file) throws IOException
+	{
+		boolean partialLine = false;
+		if(file.length() > 0)
+		{
+			try(RandomAccessFile raf = new RandomAccessFile(file, "r"))
+			{
+				raf.seek(file.length() - 1);
+				partialLine = raf.read() != '\n';
+			}
+		}
+		Writer out = new FileWriter(file, true);
+		if(partialLine)
+			out.write(System.lineSeparator());
+		return out;
+	}
+
+	private static List<runStats> collectCells(Map<String, runStats> cells, List<File> puzzles,
+											ConsistencyCheck consistencyCheck,
+											ValueSelectionHeuristic valueSelect,
+											VariableSelectionHeuristic variableSelect,
+											BTSolver.HeuristicCheck heuristicCheck)
+	{
+		List<runStats> stats = new ArrayList<runStats>();
+		for(File puzzle : puzzles)
+		{
+			runStats rs = cells.get(cellKey(consistencyCheck,valueSelect,variableSelect,heuristicCheck,puzzle));
+			if(rs != null)
+				stats.add(rs);
+		}
+		return stats;
+	}
+
+	private static void writeStrings(File file, List<String> strings)
+	{
+		try{
+			FileWriter fw = new FileWriter(file);
+
+			for(String str : strings)
+				fw.write(str+System.lineSeparator());
+
+			fw.flush();
+			fw.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static String statsToString(ConsistencyCheck consistencyCheck,
+										ValueSelectionHeuristic valueSelectionHeuristic,
+										VariableSelectionHeuristic variableSelectionHeuristic,
+										BTSolver.HeuristicCheck heuristicCheck,
+										List<runStats> easy,
+										List<runStats> medium,
+										List<runStats> hard)
+	{
+		int easyPercent = 0;
+		for(runStats s : easy)
+			if(s.isSolution())
+				easyPercent++;
+		easyPercent = (int)(((double)easyPercent/(double)easy.size())*100);
+
+		int medPercent = 0;
+		for(runStats s : medium)
+			if(s.isSolution())
+				medPercent++;
+		medPercent = (int)(((double)medPercent/(double)medium.size())*100);
+
+		int hardPercent = 0;
+		for(runStats s : hard)
+			if(s.isSolution())
+				hardPercent++;
+		hardPercent = (int)(((double)hardPercent/(double)hard.size())*100);
+
+		List<runStats> all = new ArrayList<>(easy);
+		all.addAll(medium);
+		all.addAll(hard);
+
+		long totalRunTime = 0;
+		long totalAssignments = 0;
+		long totalBackTracks = 0;
+		int totalSuccessful = 0;
+
+		for(runStats rs : all)
+		{
+			if(rs.isSolution())
+			{
+				totalRunTime += rs.getRuntime();
+				totalAssignments += rs.getNumAssignments();
+				totalBackTracks += rs.getNumBacktracks();
+				totalSuccessful++;
+			}
+		}
+
+		boolean completedNone = false;
+		if(totalSuccessful == 0)
+		{
+			totalSuccessful = 1;
+			completedNone = true;
+		}
+
+		StringBuilder builder = new StringBuilder();
+		builder
+				.append(centerPad(consistencyCheck.name(),16)) //Consistency check type
+				.append(" | ")
+				.append(centerPad(heuristicCheck.name(),13)) //Heuristic type
+				.append(" | ")
+				.append(centerPad(variableSelectionHeuristic.name(),22)) //Variable select type
+				.append(" | ")
+				.append(centerPad(valueSelectionHeuristic.name(),23)) //Value select type
+				.append(" | ");
+
+		builder
+				.append(centerPad(String.valueOf((int)(totalRunTime/totalSuccessful)),15)) //Average run time
+				.append(" | ")
+				.append(centerPad(String.valueOf((int)(totalAssignments/totalSuccessful)),10)) //Average assignments
+				.append(" | ")
+				.append(centerPad(String.valueOf((int)(totalBackTracks/totalSuccessful)),10)) //Average backtracks
+				.append(" | ");
+
+		builder
+				.append(centerPad(String.valueOf((int)easyPercent),4)) //Percent of easy problems finished
+				.append(" | ")
+				.append(centerPad(String.valueOf((int)medPercent),4)) //Percent of medium problems finished
+				.append(" | ")
+				.append(centerPad(String.valueOf((int)hardPercent),4))//Percent of hard problems finished
+				.append(" | ");
+
+		if(completedNone)
+			builder.append(centerPad("*None solved*","*None solved*".length()+2)).append(" | ");
+
+		return builder.toString();
+	}
+
+	private static String centerPad(String string, int size)
+	{
+		int padSize = size - string.length();
+		int padStart = string.length() + padSize / 2;
+
+		string = String.format("%" + padStart + "s", string);
+		string = String.format("%-" + size  + "s", string);
+		return string;
+	}
+}
@@ -0,0 +1,412 @@
+package scripts;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.regex.Pattern;
+
+import sudoku.Converter;
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+import cspSolver.BTSolver;
+import cspSolver.CompactBTSolver;
+import cspSolver.Constraint;
+import cspSolver.ConstraintNetwork;
+import cspSolver.DLXSolver;
+import cspSolver.Domain;
+import cspSolver.LocalSolver;
+import cspSolver.Trail;
+import cspSolver.Variable;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+
+/**
+ * Micro and macro benchmarks for the solver hot paths, from single Domain
+ * operations up to full solves of the puzzles in ExampleSudokuFiles by each
+ * solver engine.
+ *
+ * Each benchmark is warmed up, then run for a number of timed iterations.
+ * Operations are run in batches sized during warmup so the clock is read
+ * rarely compared to the work measured. Reported per benchmark: throughput in
+ * ops/s with its standard deviation over the iterations, and the allocation
+ * rate of the benchmark thread in MB/s and bytes per op, as counted by the
+ * JVM's per-thread allocation counter.
+ *
+ * Usage: Benchmarks [name regex] [iterations] [iteration time in ms]
+ */
+public class Benchmarks {
+
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final long MIN_BATCH_NANOS = 100000;
+
+	private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	/** Results of every op are folded in here so the JIT cannot drop the work. */
+	private static volatile int sink;
+
+	/**
+	 * One benchmarked operation. setup() runs untimed before warmup.
+	 */
+	private static abstract class Benchmark
+	{
+		final String name;
+
+		Benchmark(String name)
+		{
+			this.name = name;
+		}
+
+		void setup()
+		{
+		}
+
+		abstract int run();
+	}
+
+	public static void main(String[] args)
+	{
+		Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		long iterationTime = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+		boolean allocation = isAllocationCounted();
+		System.out.println(String.format("%-44s %16s %12s %12s %12s", "Benchmark", "ops/s", "error", "alloc MB/s", "B/op"));
+		for(Benchmark benchmark : benchmarks())
+		{
+			if(!filter.matcher(benchmark.name).find())
+				continue;
+			benchmark.setup();
+			measure(benchmark, iterations, iterationTime, allocation);
+		}
+	}
+
+	//===============================================================================
+	// Benchmarks
+	//===============================================================================
+
+	private static List<Benchmark> benchmarks()
+	{
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		final SudokuFile easy = readPuzzle("PE1");
+
+		final Domain full = new Domain(new int[] {1,2,3,4,5,6,7,8,9});
+		final Domain partial = new Domain(new int[] {2,3,5,7,9});
+		benchmarks.add(new Benchmark("Domain.contains") {
+			int value;
+
+			int run()
+			{
+				value = value % 9 + 1;
+				return partial.contains(value) ? 1 : 0;
+			}
+		});
+		benchmarks.add(new Benchmark("Domain.iterator") {
+			int run()
+			{
+				int sum = 0;
+				for(PrimitiveIterator.OfInt it = partial.iterator(); it.hasNext();)
+					sum += it.nextInt();
+				return sum;
+			}
+		});
+		benchmarks.add(new Benchmark("Domain.getValues") {
+			int run()
+			{
+				return partial.getValues().size();
+			}
+		});
+		benchmarks.add(new Benchmark("Domain.isSubsetOf") {
+			int run()
+			{
+				return partial.isSubsetOf(full) ? 1 : 0;
+			}
+		});
+		benchmarks.add(new Benchmark("Domain.copyAndRemove") {
+			int run()
+			{
+				Domain d = new Domain(full);
+				d.remove(5);
+				d.removeDomain(partial);
+				return d.size();
+			}
+		});
+
+		benchmarks.add(new NetworkBenchmark("ConstraintNetwork.getNeighborsOfVariable", easy) {
+			int run()
+			{
+				return network.getNeighborsOfVariable(nextVariable()).size();
+			}
+		});
+
+		benchmarks.add(new NetworkBenchmark("Constraint.propagateConstraint", easy) {
+			int run()
+			{
+				Constraint c = nextConstraint();
+				trail.placeBreadCrumb();
+				boolean consistent = c.propagateConstraint();
+				trail.undo();
+				return consistent ? 1 : 0;
+			}
+		});
+		benchmarks.add(new NetworkBenchmark("Constraint.propagateNakedPairs", easy) {
+			int run()
+			{
+				Constraint c = nextConstraint();
+				trail.placeBreadCrumb();
+				boolean changed = c.propagateNakedPairs();
+				trail.undo();
+				return changed ? 1 : 0;
+			}
+		});
+		benchmarks.add(new NetworkBenchmark("Constraint.propagateNakedTriples", easy) {
+			int run()
+			{
+				Constraint c = nextConstraint();
+				trail.placeBreadCrumb();
+				boolean changed = c.propagateNakedTriples();
+				trail.undo();
+				return changed ? 1 : 0;
+			}
+		});
+
+		benchmarks.add(new NetworkBenchmark("Trail.pushAndUndo", easy) {
+			int run()
+			{
+				trail.placeBreadCrumb();
+				for(int i = 0; i < 16; i++)
+				{
+					Variable v = nextVariable();
+					trail.push(v);
+				}
+				int size = trail.size();
+				trail.undo();
+				return size;
+			}
+		});
+
+		benchmarks.add(new Benchmark("Converter.SudokuFileToConstraintNetwork") {
+			int run()
+			{
+				return Converter.SudokuFileToConstraintNetwork(easy).getVariables().size();
+			}
+		});
+
+		for(String puzzle : new String[] {"PE1", "PH1", "PH2", "PH3"})
+		{
+			final SudokuFile sf = readPuzzle(puzzle);
+			benchmarks.add(new Benchmark("BTSolver.solve(" + puzzle + ")") {
+				int run()
+				{
+					BTSolver solver = new BTSolver(sf);
+					solver.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+					solver.setHeuristicCheck(HeuristicCheck.None);
+					solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+					solver.setValueSelectionHeuristic(ValueSelectionHeuristic.LeastConstrainingValue);
+					solver.solve();
+					return solver.getNumAssignments();
+				}
+			});
+			benchmarks.add(new Benchmark("CompactBTSolver.solve(" + puzzle + ")") {
+				int run()
+				{
+					CompactBTSolver solver = new CompactBTSolver(sf);
+					solver.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+					solver.setHeuristicCheck(HeuristicCheck.None);
+					solver.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+					solver.setValueSelectionHeuristic(ValueSelectionHeuristic.LeastConstrainingValue);
+					solver.solve();
+					return solver.getNumAssignments();
+				}
+			});
+			benchmarks.add(new Benchmark("DLXSolver.solve(" + puzzle + ")") {
+				int run()
+				{
+					DLXSolver solver = new DLXSolver(sf);
+					solver.solve();
+					return solver.getNumAssignments();
+				}
+			});
+		}
+
+		//PE1 is solved before the first step, so steps are measured on a 16x16 puzzle
+		final SudokuFile large = readPuzzle("PH1");
+		benchmarks.add(new Benchmark("LocalSolver.step(PH1)") {
+			LocalSolver solver;
+
+			void setup()
+			{
+				solver = new LocalSolver(large);
+				solver.generateStartState();
+			}
+
+			int run()
+			{
+				if(solver.isSolution())
+				{
+					solver.generateStartState();
+				}
+				solver.restartCounter();
+				solver.generateSuccessor();
+				return solver.isSolution() ? 1 : 0;
+			}
+		});
+
+		return benchmarks;
+	}
+
+	/**
+	 * Benchmark on the network of a puzzle whose initial values have already
+	 * been propagated, cycling through its variables and constraints.
+	 */
+	private static abstract class NetworkBenchmark extends Benchmark
+	{
+		final SudokuFile sf;
+		ConstraintNetwork network;
+		Trail trail;
+		private int nextVariable;
+		private int nextConstraint;
+
+		NetworkBenchmark(String name, SudokuFile sf)
+		{
+			super(name);
+			this.sf = sf;
+		}
+
+		@Override
+		void setup()
+		{
+			network = Converter.SudokuFileToConstraintNetwork(sf);
+			trail = network.getTrail();
+			boolean changed = true;
+			while(changed)
+			{
+				int before = 0;
+				for(Variable v : network.getVariables())
+					before += v.size();
+				for(Constraint c : network.getConstraints())
+					c.propagateConstraint();
+				int after = 0;
+				for(Variable v : network.getVariables())
+					after += v.size();
+				changed = after != before;
+			}
+		}
+
+		Variable nextVariable()
+		{
+			List<Variable> variables = network.getVariables();
+			if(nextVariable == variables.size())
+				nextVariable = 0;
+			return variables.get(nextVariable++);
+		}
+
+		Constraint nextConstraint()
+		{
+			List<Constraint> constraints = network.getConstraints();
+			if(nextConstraint == constraints.size())
+				nextConstraint = 0;
+			return constraints.get(nextConstraint++);
+		}
+	}
+
+	//===============================================================================
+	// Harness
+	//===============================================================================
+
+	private static void measure(Benchmark benchmark, int iterations, long iterationTime, boolean allocation)
+	{
+		long iterationNanos = iterationTime * 1000000L;
+
+		//warmup, growing the batch until one batch takes long enough to time
+		int batch = 1;
+		for(int i = 0; i < WARMUP_ITERATIONS; i++)
+		{
+			long end = System.nanoTime() + iterationNanos;
+			long now;
+			do
+			{
+				long start = System.nanoTime();
+				runBatch(benchmark, batch);
+				now = System.nanoTime();
+				if(now - start < MIN_BATCH_NANOS && batch < (1 << 30))
+					batch *= 2;
+			} while(now < end);
+		}
+
+		double[] throughput = new double[iterations];
+		long totalOps = 0;
+		long totalNanos = 0;
+		long totalBytes = 0;
+		long threadId = Thread.currentThread().getId();
+		for(int i = 0; i < iterations; i++)
+		{
+			long ops = 0;
+			long bytesBefore = allocation ? allocatedBytes(threadId) : 0;
+			long start = System.nanoTime();
+			long end = start + iterationNanos;
+			long now;
+			do
+			{
+				runBatch(benchmark, batch);
+				ops += batch;
+				now = System.nanoTime();
+			} while(now < end);
+			long bytes = allocation ? allocatedBytes(threadId) - bytesBefore : 0;
+			long elapsed = now - start;
+			throughput[i] = ops * 1e9 / elapsed;
+			totalOps += ops;
+			totalNanos += elapsed;
+			totalBytes += bytes;
+		}
+
+		double mean = 0;
+		for(double t : throughput)
+			mean += t;
+		mean /= iterations;
+		double variance = 0;
+		for(double t : throughput)
+			variance += (t - mean) * (t - mean);
+		double stddev = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+
+		String rate = allocation ? String.format("%12.1f", totalBytes / 1048576.0 / (totalNanos / 1e9)) : String.format("%12s", "n/a");
+		String perOp = allocation ? String.format("%12.1f", (double)totalBytes / totalOps) : String.format("%12s", "n/a");
+		System.out.println(String.format("%-44s %16.1f %12.1f ", benchmark.name, mean, stddev) + rate + " " + perOp);
+	}
+
+	private static void runBatch(Benchmark benchmark, int batch)
+	{
+		int result = 0;
+		for(int i = 0; i < batch; i++)
+			result += benchmark.run();
+		sink += result;
+	}
+
+	//===============================================================================
+	// Helper Methods
+	//===============================================================================
+
+	private static boolean isAllocationCounted()
+	{
+		if(!(threads instanceof com.sun.management.ThreadMXBean))
+			return false;
+		com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean)threads;
+		if(!counter.isThreadAllocatedMemorySupported())
+			return false;
+		counter.setThreadAllocatedMemoryEnabled(true);
+		return counter.isThreadAllocatedMemoryEnabled();
+	}
+
+	private static long allocatedBytes(long threadId)
+	{
+		return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(threadId);
+	}
+
+	private static SudokuFile readPuzzle(String name)
+	{
+		return SudokuBoardReader.readFile("ExampleSudokuFiles/" + name + ".txt");
+	}
+}
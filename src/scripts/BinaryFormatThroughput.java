@@ -0,0 +1,128 @@
+package scripts;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sudoku.SudokuBinaryFormat;
+import sudoku.SudokuBinaryReader;
+import sudoku.SudokuBinaryWriter;
+import sudoku.SudokuBoardGenerator;
+import sudoku.SudokuFile;
+import sudoku.SudokuStreamReader;
+import cspSolver.DLXSolver;
+
+/**
+ * Archives a generated corpus of puzzles and their solutions both as text and
+ * in SudokuBinaryFormat, then reads each archive back, reporting file sizes
+ * and read and write throughput. Checks that both archives read back the
+ * same boards as were written and exits with 1 if either does not.
+ *
+ * Usage: BinaryFormatThroughput [count] [N] [p] [q] [seed]
+ */
+public class BinaryFormatThroughput {
+
+	public static void main(String[] args) throws IOException
+	{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int N = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		int p = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		int q = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+		List<SudokuFile> puzzles = SudokuBoardGenerator.generateUniqueBoards(count, N, p, q, 0, seed);
+		List<SudokuFile> solutions = new ArrayList<SudokuFile>(count);
+		for(SudokuFile puzzle : puzzles)
+		{
+			DLXSolver solver = new DLXSolver(puzzle);
+			solver.solve();
+			solutions.add(solver.getSolution());
+		}
+
+		Path text = Files.createTempFile("corpus", ".txt");
+		Path binary = Files.createTempFile("corpus", ".bin");
+		int failures = 0;
+		try
+		{
+			//text archive: each puzzle followed by its solution
+			long startTime = System.nanoTime();
+			try(Writer out = Files.newBufferedWriter(text, StandardCharsets.US_ASCII))
+			{
+				for(int i = 0; i < count; i++)
+				{
+					out.write(puzzles.get(i).toString());
+					out.write(solutions.get(i).toString());
+				}
+			}
+			long textWrite = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			try(SudokuStreamReader in = SudokuStreamReader.open(text))
+			{
+				for(int i = 0; i < count; i++)
+				{
+					if(!in.hasNext() || !sameBoard(in.next(), puzzles.get(i)) || !in.hasNext() || !sameBoard(in.next(), solutions.get(i)))
+						failures++;
+				}
+			}
+			long textRead = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			try(SudokuBinaryWriter out = SudokuBinaryWriter.open(binary))
+			{
+				for(int i = 0; i < count; i++)
+					out.write(puzzles.get(i), solutions.get(i));
+			}
+			long binaryWrite = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			try(SudokuBinaryReader in = SudokuBinaryReader.open(binary))
+			{
+				for(int i = 0; i < count; i++)
+				{
+					if(!in.hasNext())
+					{
+						failures++;
+						continue;
+					}
+					SudokuBinaryFormat.Record record = in.next();
+					if(!sameBoard(record.getPuzzle(), puzzles.get(i)) || !sameBoard(record.getSolution(), solutions.get(i)))
+						failures++;
+				}
+			}
+			long binaryRead = System.nanoTime() - startTime;
+
+			System.out.println(count + " puzzles of " + N + "x" + N + " with solutions (seed " + seed + ")");
+			report("text", Files.size(text), count, textWrite, textRead);
+			report("binary", Files.size(binary), count, binaryWrite, binaryRead);
+			System.out.println(failures + " puzzles read back wrong.");
+		}
+		finally
+		{
+			Files.deleteIfExists(text);
+			Files.deleteIfExists(binary);
+		}
+		if(failures > 0)
+		{
+			System.exit(1);
+		}
+	}
+
+	private static void report(String format, long bytes, int count, long writeNanos, long readNanos)
+	{
+		System.out.println(String.format("%-8s %12d bytes %8.1f bytes/puzzle   write %10.0f puzzles/s %8.1f MB/s   read %10.0f puzzles/s %8.1f MB/s",
+				format, bytes, (double)bytes / count,
+				count * 1e9 / writeNanos, bytes / 1048576.0 / (writeNanos / 1e9),
+				count * 1e9 / readNanos, bytes / 1048576.0 / (readNanos / 1e9)));
+	}
+
+	private static boolean sameBoard(SudokuFile a, SudokuFile b)
+	{
+		return a != null && a.getN() == b.getN() && a.getP() == b.getP() && a.getQ() == b.getQ() && Arrays.deepEquals(a.getBoard(), b.getBoard());
+	}
+}
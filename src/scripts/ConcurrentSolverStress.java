@@ -0,0 +1,115 @@
+package scripts;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sudoku.SudokuFile;
+import cspSolver.BTSolver;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+
+/**
+ * Stress test for running many BTSolvers at once in one JVM. Every puzzle in
+ * ExampleSudokuFiles is first solved on the main thread; the same solves are
+ * then repeated concurrently on every core, and each result must be a valid
+ * solution identical to the sequential one, with the same number of assignments.
+ * Puzzles the sequential solver cannot finish within the time limit are skipped.
+ *
+ * Usage: ConcurrentSolverStress [rounds] [threads] [time limit in ms]
+ */
+public class ConcurrentSolverStress {
+
+	private static final ConsistencyCheck CONSISTENCY_CHECK = ConsistencyCheck.ArcConsistency;
+	private static final VariableSelectionHeuristic VARIABLE_SELECT = VariableSelectionHeuristic.MinimumRemainingValue;
+
+	public static void main(String[] args) throws Exception
+	{
+		int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+
+		List<SudokuFile> puzzles = new ArrayList<SudokuFile>();
+		List<BTSolver> reference = new ArrayList<BTSolver>();
+		for(SudokuFile puzzle : BTSolverStats.getPuzzlesFromFolder(new File("ExampleSudokuFiles/")))
+		{
+			BTSolver solver = newSolver(puzzle, ValueSelectionHeuristic.values()[puzzles.size() % ValueSelectionHeuristic.values().length]);
+			Thread t1 = new Thread(solver);
+			t1.start();
+			t1.join(timeLimit);
+			if(t1.isAlive())
+			{
+				t1.interrupt();
+				t1.join();
+			}
+			if(solver.hasSolution())
+			{
+				puzzles.add(puzzle);
+				reference.add(solver);
+			}
+		}
+		System.out.println("Solved " + puzzles.size() + " puzzles sequentially. Starting " + rounds
+				+ " concurrent rounds on " + threads + " threads.");
+
+		long startTime = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<BTSolver>> futures = new ArrayList<Future<BTSolver>>();
+		for(int round = 0; round < rounds; round++)
+		{
+			for(int i = 0; i < puzzles.size(); i++)
+			{
+				final SudokuFile puzzle = puzzles.get(i);
+				final ValueSelectionHeuristic valueSelect = ValueSelectionHeuristic.values()[i % ValueSelectionHeuristic.values().length];
+				futures.add(executor.submit(new Callable<BTSolver>() {
+					@Override
+					public BTSolver call()
+					{
+						BTSolver solver = newSolver(puzzle, valueSelect);
+						solver.solve();
+						return solver;
+					}
+				}));
+			}
+		}
+
+		int failures = 0;
+		for(int i = 0; i < futures.size(); i++)
+		{
+			int p = i % puzzles.size();
+			BTSolver expected = reference.get(p);
+			BTSolver actual = futures.get(i).get();
+			if(!actual.hasSolution() || !actual.getSolution().isSolutionTo(puzzles.get(p))
+					|| actual.getNumAssignments() != expected.getNumAssignments()
+					|| !Arrays.deepEquals(actual.getSolution().getBoard(), expected.getSolution().getBoard()))
+			{
+				failures++;
+				System.out.println("Mismatch on puzzle " + p + " in round " + (i / puzzles.size())
+						+ ": " + actual.getNumAssignments() + " assignments, expected " + expected.getNumAssignments());
+			}
+		}
+		executor.shutdown();
+
+		long elapsedTime = System.currentTimeMillis() - startTime;
+		System.out.println(futures.size() + " concurrent solves, " + failures + " failures, " + elapsedTime + " ms.");
+		if(failures > 0)
+		{
+			System.exit(1);
+		}
+	}
+
+	private static BTSolver newSolver(SudokuFile puzzle, ValueSelectionHeuristic valueSelect)
+	{
+		BTSolver solver = new BTSolver(puzzle);
+		solver.setConsistencyChecks(CONSISTENCY_CHECK);
+		solver.setHeuristicCheck(BTSolver.HeuristicCheck.None);
+		solver.setVariableSelectionHeuristic(VARIABLE_SELECT);
+		solver.setValueSelectionHeuristic(valueSelect);
+		return solver;
+	}
+}
@@ -0,0 +1,51 @@
+package scripts;
+
+import java.util.List;
+
+import sudoku.SudokuBoardGenerator;
+import sudoku.SudokuFile;
+import cspSolver.DLXSolver;
+
+/**
+ * Measures how many unique-solution puzzles SudokuBoardGenerator produces per
+ * minute on every core, and checks that each of them has exactly one solution.
+ * Exits with 1 if any puzzle is not unique.
+ *
+ * Usage: GeneratorThroughput [count] [N] [p] [q] [clues] [seed]
+ */
+public class GeneratorThroughput {
+
+	public static void main(String[] args)
+	{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int N = args.length > 1 ? Integer.parseInt(args[1]) : 9;
+		int p = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		int q = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		int clues = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+		long seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+
+		long startTime = System.currentTimeMillis();
+		List<SudokuFile> puzzles = SudokuBoardGenerator.generateUniqueBoards(count, N, p, q, clues, seed);
+		long elapsedTime = Math.max(System.currentTimeMillis() - startTime, 1);
+
+		int failures = 0;
+		long totalClues = 0;
+		for(SudokuFile puzzle : puzzles)
+		{
+			if(new DLXSolver(puzzle).countSolutions(2) != 1)
+				failures++;
+			for(int[] row : puzzle.getBoard())
+				for(int value : row)
+					if(value != 0)
+						totalClues++;
+		}
+
+		System.out.println(count + " puzzles of " + N + "x" + N + " (seed " + seed + ") in " + elapsedTime + " ms, "
+				+ (count * 60000L / elapsedTime) + " puzzles per minute, "
+				+ String.format("%.1f", (double)totalClues / count) + " clues on average, " + failures + " not unique.");
+		if(failures > 0)
+		{
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package scripts;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import sudoku.SudokuBoardGenerator;
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+import sudoku.SudokuStreamReader;
+import cspSolver.BTSolver;
+import cspSolver.CompactBTSolver;
+import cspSolver.DLXSolver;
+import cspSolver.Solver;
+import cspSolver.BTSolver.ConsistencyCheck;
+import cspSolver.BTSolver.HeuristicCheck;
+import cspSolver.BTSolver.ValueSelectionHeuristic;
+import cspSolver.BTSolver.VariableSelectionHeuristic;
+
+/**
+ * Generates 49x49 and 64x64 puzzles with SudokuBoardGenerator and solves each
+ * with every solver engine, checking that it is solved within a time budget
+ * and that the peak heap use during the solve stays within a memory budget.
+ * Each puzzle is first written out as text and read back with both
+ * SudokuStreamReader and SudokuBoardReader, so values above 35 go through the
+ * file format too. Exits with 1 if any puzzle is read back wrong, goes
+ * unsolved or breaks a budget.
+ *
+ * Puzzles keep a fixed share of their cells as clues. Around half is where
+ * random puzzles of this size are hardest, so the default is 65%.
+ *
+ * Usage: LargeBoardBenchmark [puzzles per size] [clue percent] [time budget in ms] [heap budget in MB] [seed]
+ */
+public class LargeBoardBenchmark {
+
+	private static final int[][] SIZES = {{49, 7, 7}, {64, 8, 8}};
+
+	public static void main(String[] args) throws InterruptedException, IOException
+	{
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int cluePercent = args.length > 1 ? Integer.parseInt(args[1]) : 65;
+		long timeBudget = args.length > 2 ? Long.parseLong(args[2]) : 10000;
+		long heapBudget = (args.length > 3 ? Long.parseLong(args[3]) : 256) * 1048576L;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+
+		SplittableRandom seeds = new SplittableRandom(seed);
+		int failures = 0;
+		System.out.println("Seed " + seed + ", " + cluePercent + "% clues, budget " + timeBudget + " ms and " + heapBudget / 1048576 + " MB per solve");
+		System.out.println(String.format("%-8s %-16s %10s %12s %12s %s", "Size", "Solver", "ms", "assignments", "peak MB", "result"));
+		for(int[] size : SIZES)
+		{
+			int N = size[0];
+			for(int i = 0; i < count; i++)
+			{
+				SudokuFile generated = SudokuBoardGenerator.generateSolvableBoard(N, size[1], size[2], N * N * cluePercent / 100, seeds.split());
+				SudokuFile puzzle = readBack(generated);
+				if(!Arrays.deepEquals(puzzle.getBoard(), generated.getBoard()) || !Arrays.deepEquals(readBackFromFile(generated).getBoard(), generated.getBoard()))
+				{
+					System.out.println(N + "x" + N + " puzzle " + i + " was read back wrong");
+					failures++;
+					continue;
+				}
+				for(String engine : new String[] {"BTSolver", "CompactBTSolver", "DLXSolver"})
+				{
+					if(!solve(engine, puzzle, timeBudget, heapBudget))
+						failures++;
+				}
+			}
+		}
+		System.out.println(failures + " failures.");
+		if(failures > 0)
+		{
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Solves a puzzle on its own thread, cancelling it once the time budget is spent.
+	 * @return true if the puzzle was solved within both budgets
+	 */
+	private static boolean solve(String engine, SudokuFile puzzle, long timeBudget, long heapBudget) throws InterruptedException
+	{
+		Solver solver;
+		if(engine.equals("BTSolver"))
+		{
+			BTSolver bt = new BTSolver(puzzle);
+			bt.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+			bt.setHeuristicCheck(HeuristicCheck.HiddenSingles);
+			bt.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+			bt.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+			solver = bt;
+		}
+		else if(engine.equals("CompactBTSolver"))
+		{
+			CompactBTSolver compact = new CompactBTSolver(puzzle);
+			compact.setConsistencyChecks(ConsistencyCheck.ForwardChecking);
+			compact.setHeuristicCheck(HeuristicCheck.HiddenSingles);
+			compact.setVariableSelectionHeuristic(VariableSelectionHeuristic.MinimumRemainingValue);
+			compact.setValueSelectionHeuristic(ValueSelectionHeuristic.None);
+			solver = compact;
+		}
+		else
+		{
+			solver = new DLXSolver(puzzle);
+		}
+
+		System.gc();
+		resetPeakHeap();
+		long startTime = System.nanoTime();
+		Thread worker = new Thread(solver, engine);
+		worker.setDaemon(true);
+		worker.start();
+		worker.join(timeBudget);
+		if(worker.isAlive())
+		{
+			solver.cancel();
+			worker.join();
+		}
+		long elapsed = (System.nanoTime() - startTime) / 1000000;
+		long peakHeap = peakHeap();
+
+		SudokuFile solution;
+		int assignments;
+		if(solver instanceof BTSolver)
+		{
+			solution = ((BTSolver)solver).getSolution();
+			assignments = ((BTSolver)solver).getNumAssignments();
+		}
+		else if(solver instanceof CompactBTSolver)
+		{
+			solution = ((CompactBTSolver)solver).getSolution();
+			assignments = ((CompactBTSolver)solver).getNumAssignments();
+		}
+		else
+		{
+			solution = ((DLXSolver)solver).getSolution();
+			assignments = ((DLXSolver)solver).getNumAssignments();
+		}
+
+		String result;
+		if(!solution.isSolutionTo(puzzle))
+			result = elapsed >= timeBudget ? "timed out" : "not solved";
+		else if(peakHeap > heapBudget)
+			result = "over memory budget";
+		else
+			result = "solved";
+		int N = puzzle.getN();
+		System.out.println(String.format("%-8s %-16s %10d %12d %12.1f %s", N + "x" + N, engine, elapsed, assignments, peakHeap / 1048576.0, result));
+		return result.equals("solved");
+	}
+
+	/**
+	 * @return the puzzle after writing it as text and parsing it again
+	 */
+	private static SudokuFile readBack(SudokuFile sf) throws IOException
+	{
+		byte[] text = sf.toString().getBytes(StandardCharsets.US_ASCII);
+		try(SudokuStreamReader reader = new SudokuStreamReader(Channels.newChannel(new ByteArrayInputStream(text))))
+		{
+			return reader.next();
+		}
+	}
+
+	/**
+	 * @return the puzzle after writing it to a text file and reading it with SudokuBoardReader
+	 */
+	private static SudokuFile readBackFromFile(SudokuFile sf) throws IOException
+	{
+		Path file = Files.createTempFile("board", ".txt");
+		try
+		{
+			Files.write(file, sf.toString().getBytes(StandardCharsets.US_ASCII));
+			return SudokuBoardReader.readFile(file.toString());
+		}
+		finally
+		{
+			Files.delete(file);
+		}
+	}
+
+	private static void resetPeakHeap()
+	{
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if(pool.getType() == MemoryType.HEAP)
+				pool.resetPeakUsage();
+		}
+	}
+
+	/**
+	 * @return sum of the peak use of each heap pool since the last reset
+	 */
+	private static long peakHeap()
+	{
+		long peak = 0;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+		{
+			if(pool.getType() == MemoryType.HEAP)
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+}
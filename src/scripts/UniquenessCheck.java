@@ -0,0 +1,47 @@
+package scripts;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import sudoku.SudokuBoardReader;
+import sudoku.SudokuFile;
+import cspSolver.DLXSolver;
+
+/**
+ * Checks that every puzzle in a folder has exactly one solution. Solutions are
+ * counted with a limit of 2, so a puzzle is rejected as soon as a second
+ * solution turns up. Exits with 1 if any puzzle is not unique.
+ *
+ * Usage: UniquenessCheck [folder]
+ */
+public class UniquenessCheck {
+
+	public static void main(String[] args)
+	{
+		File folder = new File(args.length > 0 ? args[0] : "ExampleSudokuFiles/");
+
+		List<String> rejected = new ArrayList<String>();
+		int checked = 0;
+		long startTime = System.currentTimeMillis();
+		for(File puzzle : BTSolverStats.getPuzzleFilesFromFolder(folder))
+		{
+			SudokuFile sf = SudokuBoardReader.readFile(puzzle.getPath());
+			long solutions = new DLXSolver(sf).countSolutions(2);
+			checked++;
+			if(solutions == 0)
+				rejected.add(puzzle.getName() + ": no solution");
+			else if(solutions > 1)
+				rejected.add(puzzle.getName() + ": more than one solution");
+		}
+
+		for(String line : rejected)
+			System.out.println(line);
+		long elapsedTime = System.currentTimeMillis() - startTime;
+		System.out.println(checked + " puzzles checked, " + rejected.size() + " not unique, " + elapsedTime + " ms.");
+		if(!rejected.isEmpty())
+		{
+			System.exit(1);
+		}
+	}
+}
@@ -1,33 +1,76 @@
-package sudoku;
-import java.util.Arrays;
-
-
-public class Odometer {
-	public static int odometerToInt(String value) {
-		int retVal = Arrays.binarySearch(ODOMETER, value.toUpperCase());
-		if(retVal < 0)
-		{
-			System.err.println("odometerToInt failed. Invlaid value " + value + "Replaced with 0");
-			retVal = 0;
-		}
-		return retVal;
-	}
-	
-	public static String intToOdometer(int num)
-	{
-		String retVal;
-		try{
-			retVal = ODOMETER[num];
-		}catch(IndexOutOfBoundsException e){
-			System.err.println("intToOdometer failed. Invalid number " + num + " Replaced with 0");
-			retVal = "0";
-		}
-		return retVal;
-	}
-
-	private static final String[] ODOMETER = 
-		{"0","1","2","3","4","5","6","7","8","9",
-		 "A","B","C","D","E","F","G","H","I","J",
-		 "K","L","M","N","O","P","Q","R","S","T",
-		 "U","V","W","X","Y","Z"};
-}
+package sudoku;
+import java.util.Arrays;
+
+
+/**
+ * Converts between cell values and the tokens of puzzle files. Values up to 35
+ * are single characters, 0-9 then A-Z, so boards up to 35x35 keep one
+ * character per cell. Larger boards are written in decimal numbers, and any
+ * token longer than one character is read as one, so "36" is 36 and "10" is
+ * the same value as "A".
+ */
+public class Odometer {
+	public static int odometerToInt(String value) {
+		int retVal;
+		if(value.length() > 1)
+		{
+			try{
+				retVal = Integer.parseInt(value);
+			}catch(NumberFormatException e){
+				retVal = -1;
+			}
+		}
+		else
+		{
+			retVal = Arrays.binarySearch(ODOMETER, value.toUpperCase());
+		}
+		if(retVal < 0)
+		{
+			System.err.println("odometerToInt failed. Invlaid value " + value + "Replaced with 0");
+			retVal = 0;
+		}
+		return retVal;
+	}
+	
+	public static String intToOdometer(int num)
+	{
+		String retVal;
+		if(num >= ODOMETER.length)
+		{
+			return Integer.toString(num);
+		}
+		try{
+			retVal = ODOMETER[num];
+		}catch(IndexOutOfBoundsException e){
+			System.err.println("intToOdometer failed. Invalid number " + num + " Replaced with 0");
+			retVal = "0";
+		}
+		return retVal;
+	}
+
+	/**
+	 * Token of a value on a board of size N. Boards up to 35x35 use the single
+	 * characters; larger boards write every value in decimal, padded with zeros
+	 * to the width of N so the columns line up.
+	 */
+	public static String intToOdometer(int num, int N)
+	{
+		if(N < ODOMETER.length)
+		{
+			return intToOdometer(num);
+		}
+		String retVal = Integer.toString(num);
+		int width = Integer.toString(N).length();
+		while(retVal.length() < width)
+		{
+			retVal = "0" + retVal;
+		}
+		return retVal;
+	}
+
+	private static final String[] ODOMETER = 
+		{"0","1","2","3","4","5","6","7","8","9",
+		 "A","B","C","D","E","F","G","H","I","J",
+		 "K","L","M","N","O","P","Q","R","S","T",
+		 "U","V","W","X","Y","Z"};
+}
@@ -0,0 +1,279 @@
+package sudoku;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packed binary encoding of puzzles, optionally with their solutions, for
+ * archiving large numbers of them. A file starts with the 4 byte MAGIC and is
+ * followed by one record per puzzle:
+ *
+ * 1 byte of flags, FLAG_SOLUTION if a solution block follows the puzzle
+ * 2 bytes each for N, p and q, unsigned and big endian
+ * the N*N cells of the puzzle, row by row, bitsPerCell(N) bits each, with the
+ * most significant bit first and the last byte padded with zeros
+ * the N*N cells of the solution in the same layout, if FLAG_SOLUTION is set
+ *
+ * A 9x9 puzzle takes 48 bytes, against about 200 as text.
+ *
+ * @see SudokuBinaryReader
+ * @see SudokuBinaryWriter
+ */
+public final class SudokuBinaryFormat {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	public static final int MAGIC = 0x53444B31;		//"SDK1"
+	public static final int FLAG_SOLUTION = 1;
+	static final int HEADER_SIZE = 7;
+	static final int MAX_N = 0xFFFF;
+	public static final int MAX_RECORD_SIZE = 1 << 30;		//largest record read or written, in bytes
+
+	private SudokuBinaryFormat()
+	{
+	}
+
+	/**
+	 * A puzzle read back from a record, with its solution if one was stored.
+	 */
+	public static class Record
+	{
+		private final SudokuFile puzzle;
+		private final SudokuFile solution;
+
+		Record(SudokuFile puzzle, SudokuFile solution)
+		{
+			this.puzzle = puzzle;
+			this.solution = solution;
+		}
+
+		public SudokuFile getPuzzle()
+		{
+			return puzzle;
+		}
+
+		/**
+		 * @return the stored solution, null if the record has none
+		 */
+		public SudokuFile getSolution()
+		{
+			return solution;
+		}
+	}
+
+	//===============================================================================
+	// Sizes
+	//===============================================================================
+
+	/**
+	 * @return bits needed for the values 0 to N, ceil(log2(N+1))
+	 */
+	public static int bitsPerCell(int N)
+	{
+		return 32 - Integer.numberOfLeadingZeros(N);
+	}
+
+	/**
+	 * @return bytes taken by the cells of one N by N board
+	 */
+	public static long boardSize(int N)
+	{
+		return ((long)N * N * bitsPerCell(N) + 7) / 8;
+	}
+
+	/**
+	 * @return bytes taken by the record of an N by N puzzle, which can be more than MAX_RECORD_SIZE
+	 */
+	public static long recordSize(int N, boolean withSolution)
+	{
+		return HEADER_SIZE + (withSolution ? 2 : 1) * boardSize(N);
+	}
+
+	//===============================================================================
+	// Converters
+	//===============================================================================
+
+	/**
+	 * @return the record of a puzzle without a solution
+	 */
+	public static byte[] toBytes(SudokuFile puzzle)
+	{
+		return toBytes(puzzle, null);
+	}
+
+	/**
+	 * @param solution the solution to store with the puzzle, or null
+	 * @return the record of the puzzle
+	 */
+	public static byte[] toBytes(SudokuFile puzzle, SudokuFile solution)
+	{
+		ByteBuffer out = ByteBuffer.allocate(checkedRecordSize(puzzle.getN(), solution != null));
+		encode(puzzle, solution, out);
+		return out.array();
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the bytes are not a complete record
+	 */
+	public static Record fromBytes(byte[] record)
+	{
+		try
+		{
+			return decode(ByteBuffer.wrap(record));
+		}
+		catch(BufferUnderflowException e)
+		{
+			throw new IllegalArgumentException("Incomplete record of " + record.length + " bytes");
+		}
+	}
+
+	//===============================================================================
+	// Encoding
+	//===============================================================================
+
+	/**
+	 * Writes the record of a puzzle at the position of <tt>out</tt>, which must have
+	 * recordSize(N, solution != null) bytes remaining. Values outside 0 to N are
+	 * reported and written as 0.
+	 * @param solution the solution to store with the puzzle, or null
+	 * @throws IllegalArgumentException if the solution is not the size of the puzzle, or N is too large
+	 */
+	public static void encode(SudokuFile puzzle, SudokuFile solution, ByteBuffer out)
+	{
+		int N = puzzle.getN();
+		checkedRecordSize(N, solution != null);
+		if(solution != null && (solution.getN() != N || solution.getP() != puzzle.getP() || solution.getQ() != puzzle.getQ()))
+		{
+			throw new IllegalArgumentException("Solution is not the size of its puzzle");
+		}
+		out.put((byte)(solution != null ? FLAG_SOLUTION : 0));
+		out.putShort((short)N);
+		out.putShort((short)puzzle.getP());
+		out.putShort((short)puzzle.getQ());
+		encodeBoard(N, puzzle.getBoard(), out);
+		if(solution != null)
+		{
+			encodeBoard(N, solution.getBoard(), out);
+		}
+	}
+
+	private static void encodeBoard(int N, int[][] board, ByteBuffer out)
+	{
+		int bits = bitsPerCell(N);
+		long pending = 0;		//bits not yet written, in the low <tt>numPending</tt> bits
+		int numPending = 0;
+		for(int i = 0; i < N; i++)
+		{
+			for(int j = 0; j < N; j++)
+			{
+				int v = board[i][j];
+				if(v < 0 || v > N)
+				{
+					System.err.println("Invalid value " + v + " at row " + i + ", column " + j + ". Replaced with 0");
+					v = 0;
+				}
+				pending = pending << bits | v;
+				numPending += bits;
+				while(numPending >= 8)
+				{
+					numPending -= 8;
+					out.put((byte)(pending >>> numPending));
+				}
+			}
+		}
+		if(numPending > 0)
+		{
+			out.put((byte)(pending << (8 - numPending)));
+		}
+	}
+
+	//===============================================================================
+	// Decoding
+	//===============================================================================
+
+	/**
+	 * Reads the record at the position of <tt>in</tt>. Values above N are reported and read as 0.
+	 * @throws IllegalArgumentException if the header is not valid
+	 * @throws BufferUnderflowException if the record is incomplete
+	 */
+	public static Record decode(ByteBuffer in)
+	{
+		checkHeader(in);
+		int flags = in.get();
+		int N = in.getShort() & 0xFFFF;
+		int p = in.getShort() & 0xFFFF;
+		int q = in.getShort() & 0xFFFF;
+		SudokuFile puzzle = new SudokuFile(N, p, q, decodeBoard(N, in));
+		SudokuFile solution = (flags & FLAG_SOLUTION) != 0 ? new SudokuFile(N, p, q, decodeBoard(N, in)) : null;
+		return new Record(puzzle, solution);
+	}
+
+	/**
+	 * Checks the header of the record at the position of <tt>in</tt>, which needs
+	 * HEADER_SIZE bytes remaining, without moving the position.
+	 * @return size of the whole record in bytes
+	 * @throws IllegalArgumentException if the header is not valid or the record is larger than MAX_RECORD_SIZE
+	 */
+	static int checkHeader(ByteBuffer in)
+	{
+		int start = in.position();
+		int flags = in.get(start);
+		int N = in.getShort(start + 1) & 0xFFFF;
+		int p = in.getShort(start + 3) & 0xFFFF;
+		int q = in.getShort(start + 5) & 0xFFFF;
+		if(N < 1 || N != p * q || (flags & ~FLAG_SOLUTION) != 0)
+		{
+			throw new IllegalArgumentException("Invalid record header: flags " + flags + ", N " + N + ", p " + p + ", q " + q);
+		}
+		return checkedRecordSize(N, (flags & FLAG_SOLUTION) != 0);
+	}
+
+	/**
+	 * @return recordSize(N, withSolution)
+	 * @throws IllegalArgumentException if N is above MAX_N or the record is larger than MAX_RECORD_SIZE
+	 */
+	static int checkedRecordSize(int N, boolean withSolution)
+	{
+		if(N > MAX_N)
+		{
+			throw new IllegalArgumentException("N = " + N + " is too large for the binary format");
+		}
+		long size = recordSize(N, withSolution);
+		if(size > MAX_RECORD_SIZE)
+		{
+			throw new IllegalArgumentException("Record of " + size + " bytes for N = " + N + " is larger than " + MAX_RECORD_SIZE);
+		}
+		return (int)size;
+	}
+
+	private static int[][] decodeBoard(int N, ByteBuffer in)
+	{
+		int bits = bitsPerCell(N);
+		int mask = (1 << bits) - 1;
+		int[][] board = new int[N][N];
+		long pending = 0;
+		int numPending = 0;
+		for(int i = 0; i < N; i++)
+		{
+			for(int j = 0; j < N; j++)
+			{
+				while(numPending < bits)
+				{
+					pending = pending << 8 | (in.get() & 0xFF);
+					numPending += 8;
+				}
+				numPending -= bits;
+				int v = (int)(pending >>> numPending) & mask;
+				if(v > N)
+				{
+					System.err.println("Invalid value " + v + " at row " + i + ", column " + j + ". Replaced with 0");
+					v = 0;
+				}
+				board[i][j] = v;
+			}
+		}
+		return board;
+	}
+}
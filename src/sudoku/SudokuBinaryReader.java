@@ -0,0 +1,219 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the records of a file in SudokuBinaryFormat one at a time, so only the
+ * current record is held in memory. Iterates over the records, each holding a
+ * puzzle and its solution if one was stored; stream() gives the puzzles alone.
+ *
+ * @see SudokuBinaryWriter
+ */
+public class SudokuBinaryReader implements Iterator<SudokuBinaryFormat.Record>, Closeable {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final ReadableByteChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private boolean endOfInput;
+	private boolean started;		//true once the magic number has been checked
+
+	private SudokuBinaryFormat.Record next;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * @param channel a file in SudokuBinaryFormat, closed by close()
+	 */
+	public SudokuBinaryReader(ReadableByteChannel channel)
+	{
+		this.channel = channel;
+		buffer.flip();
+	}
+
+	/**
+	 * Opens a file for reading.
+	 */
+	public static SudokuBinaryReader open(Path path) throws IOException
+	{
+		return new SudokuBinaryReader(FileChannel.open(path, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Lazily reads the puzzles of a file, without their solutions. The file is
+	 * closed when the stream is closed.
+	 */
+	public static Stream<SudokuFile> stream(Path path) throws IOException
+	{
+		final SudokuBinaryReader reader = open(path);
+		final Iterator<SudokuFile> puzzles = new Iterator<SudokuFile>() {
+			@Override
+			public boolean hasNext()
+			{
+				return reader.hasNext();
+			}
+
+			@Override
+			public SudokuFile next()
+			{
+				return reader.next().getPuzzle();
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(puzzles, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(new Runnable() {
+					@Override
+					public void run()
+					{
+						try
+						{
+							reader.close();
+						}
+						catch(IOException e)
+						{
+							throw new UncheckedIOException(e);
+						}
+					}
+				});
+	}
+
+	//===============================================================================
+	// Iterator
+	//===============================================================================
+
+	/**
+	 * @throws UncheckedIOException if the channel cannot be read, is not in the binary format or ends within a record
+	 */
+	@Override
+	public boolean hasNext()
+	{
+		if(next == null)
+		{
+			try
+			{
+				next = readRecord();
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public SudokuBinaryFormat.Record next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		SudokuBinaryFormat.Record record = next;
+		next = null;
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	//===============================================================================
+	// Input
+	//===============================================================================
+
+	/**
+	 * @return the next record, null at the end of the file
+	 */
+	private SudokuBinaryFormat.Record readRecord() throws IOException
+	{
+		if(!started)
+		{
+			if(!fill(4) || buffer.getInt() != SudokuBinaryFormat.MAGIC)
+			{
+				throw new IOException("Not a binary sudoku file");
+			}
+			started = true;
+		}
+		if(!fill(1))
+		{
+			return null;
+		}
+		if(!fill(SudokuBinaryFormat.HEADER_SIZE))
+		{
+			throw new EOFException("File ends within a record header");
+		}
+		int size;
+		try
+		{
+			size = SudokuBinaryFormat.checkHeader(buffer);
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+		if(!fill(size))
+		{
+			throw new EOFException("File ends within a record");
+		}
+		try
+		{
+			return SudokuBinaryFormat.decode(buffer);
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Reads from the channel until at least <tt>bytes</tt> bytes are buffered, growing the buffer if needed.
+	 * @return false if the channel ends first
+	 */
+	private boolean fill(int bytes) throws IOException
+	{
+		if(buffer.remaining() >= bytes)
+		{
+			return true;
+		}
+		if(buffer.capacity() < bytes)
+		{
+			ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+			larger.put(buffer);
+			buffer = larger;
+		}
+		else
+		{
+			buffer.compact();
+		}
+		while(buffer.position() < bytes && !endOfInput)
+		{
+			if(channel.read(buffer) < 0)
+			{
+				endOfInput = true;
+			}
+		}
+		buffer.flip();
+		return buffer.remaining() >= bytes;
+	}
+}
@@ -0,0 +1,117 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes puzzles, and optionally their solutions, in SudokuBinaryFormat.
+ * Records are encoded straight into a buffer that is written to the channel
+ * whenever it fills up, and on close().
+ *
+ * @see SudokuBinaryReader
+ */
+public class SudokuBinaryWriter implements Closeable {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final WritableByteChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private long numRecords;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * Starts a new file on the channel by writing the format's magic number.
+	 * @param channel where to write the records, closed by close()
+	 */
+	public SudokuBinaryWriter(WritableByteChannel channel)
+	{
+		this.channel = channel;
+		buffer.putInt(SudokuBinaryFormat.MAGIC);
+	}
+
+	/**
+	 * Creates a file, or replaces it if it exists.
+	 */
+	public static SudokuBinaryWriter open(Path path) throws IOException
+	{
+		return new SudokuBinaryWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+	}
+
+	//===============================================================================
+	// Accessors
+	//===============================================================================
+
+	/**
+	 * @return number of records written so far
+	 */
+	public long getNumRecords()
+	{
+		return numRecords;
+	}
+
+	//===============================================================================
+	// Modifiers
+	//===============================================================================
+
+	public void write(SudokuFile puzzle) throws IOException
+	{
+		write(puzzle, null);
+	}
+
+	/**
+	 * @param solution the solution to store with the puzzle, or null
+	 * @throws IllegalArgumentException if the solution is not the size of the puzzle, or the record would be too large
+	 */
+	public void write(SudokuFile puzzle, SudokuFile solution) throws IOException
+	{
+		int size = SudokuBinaryFormat.checkedRecordSize(puzzle.getN(), solution != null);
+		if(buffer.remaining() < size)
+		{
+			flush();
+			if(buffer.capacity() < size)
+			{
+				buffer = ByteBuffer.allocateDirect(size);
+			}
+		}
+		SudokuBinaryFormat.encode(puzzle, solution, buffer);
+		numRecords++;
+	}
+
+	/**
+	 * Writes the buffered records to the channel.
+	 */
+	public void flush() throws IOException
+	{
+		buffer.flip();
+		while(buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+}
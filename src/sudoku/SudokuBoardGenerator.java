@@ -1,111 +1,359 @@
-package sudoku;
-import java.util.Random;
-
-
-public class SudokuBoardGenerator {
-
-	public static SudokuFile generateBoard(int N, int p, int q, int numAssignments)
-	{	
-		return generateBoard(N, p, q, numAssignments, 5000);
-	}
-	
-	public static SudokuFile generateBoard(int N, int p, int q, int numAssignments, long timeout)
-	{
-		//given a SudokuFile with N, P, Q, creates a board with the given params
-		//and assigns it to the board of the SudokuFile.
-		//timeout represents the time in ms allowed to created the SudokuFile
-		SudokuFile sf = new SudokuFile(N, p, q);
-		int[][] tempBoard = new int[sf.getN()][sf.getN()];
-		if(numAssignments > sf.getN()*sf.getN())
-		{
-			System.out.println("Number of assignments exceeds available spaces in board. Returning SudokuFile with an empty board");
-			return sf;
-		}
-		Random integerPicker = new Random();
-		long startTime = System.currentTimeMillis();
-		long currentTime;
-		for(int i = 0; i < numAssignments; i++)
-		{
-			int randomRow = integerPicker.nextInt(sf.getN()); //0 to N-1
-			int randomColumn = integerPicker.nextInt(sf.getN()); //0 to N-1
-			int randomAssignment = integerPicker.nextInt(sf.getN())+1; //1 to N
-			if(tempBoard [randomRow][randomColumn] == 0 && checkConstraints(randomRow, randomColumn, randomAssignment, sf, tempBoard) )
-			{
-				tempBoard[randomRow][randomColumn] = randomAssignment;
-			}
-			else
-			{
-				i--;
-				currentTime = System.currentTimeMillis();
-				if(currentTime - startTime > timeout)
-				{
-					System.out.println("Timeout at "+i+" elements");
-					tempBoard = new int[sf.getN()][sf.getN()];
-					break;
-				}
-			}
-		}
-		sf.setBoard(tempBoard);
-		return sf;
-	}
-
-
-	private static boolean checkConstraints(int row, int col, int value, SudokuFile sf, int[][] board)
-	{
-		if(checkRow(row, value, sf.getN(), board) 
-				&& checkColumn(col, value, sf.getN(), board) 
-				&& checkBox(row, col, value, sf.getP(), sf.getQ(), board))
-		{
-			return true;
-		}
-		
-		return false; 
-	}
-
-	public static boolean checkRow(int row, int value, int N, int[][] board)
-	{
-		for(int i = 0; i < N; i++)
-		{
-			if(board[row][i] == value)
-			{
-				return false;
-			}
-		}
-		return true;
-	}
-
-	public static boolean checkColumn(int column, int value, int N, int[][] board)
-	{
-		for (int i = 0; i < N; i++)
-		{
-			if(board[i][column] == value)
-			{
-				return false;
-			}
-		}
-
-		return true;
-	}
-
-	public static boolean checkBox(int row, int column, int value, int p, int q, int[][] board)
-	{
-		int rDiv = row/p;
-		int cDiv = column/q;
-		for(int i = rDiv * p; i < (rDiv + 1) * p; i++)
-		{
-			for(int j = cDiv * q; j < (cDiv + 1) * q; j++)
-			{
-				try{
-				if(board[i][j] == value)
-				{
-					return false;
-				}
-				}catch(ArrayIndexOutOfBoundsException e)
-				{
-					System.out.println(p + " "+ q);
-				}
-			}
-		}
-		return true;
-	}
-}
+package sudoku;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import cspSolver.DLXSolver;
+
+
+public class SudokuBoardGenerator {
+
+	//largest N whose full boards are found by solving; past it the search can take minutes, so a pattern is used
+	private static final int MAX_SOLVED_N = 36;
+
+	public static SudokuFile generateBoard(int N, int p, int q, int numAssignments)
+	{	
+		return generateBoard(N, p, q, numAssignments, 5000);
+	}
+	
+	public static SudokuFile generateBoard(int N, int p, int q, int numAssignments, long timeout)
+	{
+		//given a SudokuFile with N, P, Q, creates a board with the given params
+		//and assigns it to the board of the SudokuFile.
+		//timeout represents the time in ms allowed to created the SudokuFile
+		SudokuFile sf = new SudokuFile(N, p, q);
+		int[][] tempBoard = new int[sf.getN()][sf.getN()];
+		if(numAssignments > sf.getN()*sf.getN())
+		{
+			System.out.println("Number of assignments exceeds available spaces in board. Returning SudokuFile with an empty board");
+			return sf;
+		}
+		Random integerPicker = new Random();
+		long startTime = System.currentTimeMillis();
+		long currentTime;
+		for(int i = 0; i < numAssignments; i++)
+		{
+			int randomRow = integerPicker.nextInt(sf.getN()); //0 to N-1
+			int randomColumn = integerPicker.nextInt(sf.getN()); //0 to N-1
+			int randomAssignment = integerPicker.nextInt(sf.getN())+1; //1 to N
+			if(tempBoard [randomRow][randomColumn] == 0 && checkConstraints(randomRow, randomColumn, randomAssignment, sf, tempBoard) )
+			{
+				tempBoard[randomRow][randomColumn] = randomAssignment;
+			}
+			else
+			{
+				i--;
+				currentTime = System.currentTimeMillis();
+				if(currentTime - startTime > timeout)
+				{
+					System.out.println("Timeout at "+i+" elements");
+					tempBoard = new int[sf.getN()][sf.getN()];
+					break;
+				}
+			}
+		}
+		sf.setBoard(tempBoard);
+		return sf;
+	}
+
+
+	/**
+	 * Generates a puzzle with exactly one solution. A random full grid is built by
+	 * solving a board whose first row is a random permutation, or past 36x36 from
+	 * a pattern with relabelled values, then shuffling its rows within bands,
+	 * columns within stacks, and the bands and stacks themselves.
+	 * Clues are then removed in random order, each removal kept only if the puzzle
+	 * is still unique, until <tt>numClues</tt> are left or no clue can be removed.
+	 * @param numClues number of clues to stop at, 0 to remove as many as possible
+	 * @param random source of randomness, not shared with other threads
+	 * @return a puzzle with a unique solution and at least numClues clues
+	 */
+	public static SudokuFile generateUniqueBoard(int N, int p, int q, int numClues, SplittableRandom random)
+	{
+		int[][] board = generateFullBoard(N, p, q, random);
+
+		int[] cells = new int[N * N];
+		for(int c = 0; c < cells.length; c++)
+		{
+			cells[c] = c;
+		}
+		shuffle(cells, random);
+
+		int clues = N * N;
+		for(int c : cells)
+		{
+			if(clues <= numClues)
+			{
+				break;
+			}
+			int row = c / N;
+			int col = c % N;
+			int value = board[row][col];
+			board[row][col] = 0;
+			if(new DLXSolver(new SudokuFile(N, p, q, board)).countSolutions(2) == 1)
+			{
+				clues--;
+			}
+			else
+			{
+				board[row][col] = value;
+			}
+		}
+		return new SudokuFile(N, p, q, board);
+	}
+
+	/**
+	 * Generates puzzles with exactly one solution on every core. Each puzzle gets its
+	 * own random generator split off from <tt>seed</tt>, so the puzzles depend only
+	 * on the seed and not on how the work is scheduled.
+	 * @param count number of puzzles
+	 * @param numClues number of clues to stop at, 0 to remove as many as possible
+	 * @param seed seed of the puzzles
+	 * @return the puzzles, in order
+	 * @see #generateUniqueBoard(int, int, int, int, SplittableRandom)
+	 */
+	public static List<SudokuFile> generateUniqueBoards(int count, final int N, final int p, final int q, final int numClues, long seed)
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "board-generator");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		SplittableRandom seeds = new SplittableRandom(seed);
+		List<Future<SudokuFile>> futures = new ArrayList<Future<SudokuFile>>(count);
+		for(int i = 0; i < count; i++)
+		{
+			final SplittableRandom random = seeds.split();
+			futures.add(executor.submit(new Callable<SudokuFile>() {
+				@Override
+				public SudokuFile call()
+				{
+					return generateUniqueBoard(N, p, q, numClues, random);
+				}
+			}));
+		}
+
+		List<SudokuFile> boards = new ArrayList<SudokuFile>(count);
+		try
+		{
+			for(Future<SudokuFile> future : futures)
+			{
+				boards.add(future.get());
+			}
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating boards", e);
+		}
+		catch(ExecutionException e)
+		{
+			throw new IllegalStateException("Board generation failed", e.getCause());
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		return boards;
+	}
+
+	/**
+	 * Generates a puzzle that has at least one solution, for boards too large to
+	 * check uniqueness cell by cell. A random full grid is built as for
+	 * generateUniqueBoard, then cells are emptied in random order until
+	 * <tt>numClues</tt> are left, without any solving.
+	 * @param numClues number of clues to leave
+	 * @param random source of randomness, not shared with other threads
+	 * @return a solvable puzzle with numClues clues
+	 * @see #generateUniqueBoard(int, int, int, int, SplittableRandom)
+	 */
+	public static SudokuFile generateSolvableBoard(int N, int p, int q, int numClues, SplittableRandom random)
+	{
+		int[][] board = generateFullBoard(N, p, q, random);
+
+		int[] cells = new int[N * N];
+		for(int c = 0; c < cells.length; c++)
+		{
+			cells[c] = c;
+		}
+		shuffle(cells, random);
+		for(int k = 0; k < cells.length - numClues; k++)
+		{
+			board[cells[k] / N][cells[k] % N] = 0;
+		}
+		return new SudokuFile(N, p, q, board);
+	}
+
+	/**
+	 * @return a random complete and valid board
+	 */
+	private static int[][] generateFullBoard(int N, int p, int q, SplittableRandom random)
+	{
+		int[][] full = N <= MAX_SOLVED_N ? solvedFullBoard(N, p, q, random) : patternFullBoard(N, p, q, random);
+
+		//rows are grouped into q bands of p rows, columns into p stacks of q columns
+		int[] rows = shuffledGroups(q, p, random);
+		int[] cols = shuffledGroups(p, q, random);
+		int[][] board = new int[N][N];
+		for(int i = 0; i < N; i++)
+		{
+			for(int j = 0; j < N; j++)
+			{
+				board[i][j] = full[rows[i]][cols[j]];
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * @return the solution of a board whose first row is a random permutation
+	 */
+	private static int[][] solvedFullBoard(int N, int p, int q, SplittableRandom random)
+	{
+		int[][] seedBoard = new int[N][N];
+		int[] firstRow = new int[N];
+		for(int v = 0; v < N; v++)
+		{
+			firstRow[v] = v + 1;
+		}
+		shuffle(firstRow, random);
+		seedBoard[0] = firstRow;
+		DLXSolver solver = new DLXSolver(new SudokuFile(N, p, q, seedBoard));
+		solver.solve();
+		return solver.getSolution().getBoard();
+	}
+
+	/**
+	 * Fills the board with the pattern q * (i mod p) + i / p + j, which is valid for
+	 * p by q blocks, then relabels the values with a random permutation.
+	 * @return a complete board built without search
+	 */
+	private static int[][] patternFullBoard(int N, int p, int q, SplittableRandom random)
+	{
+		int[] label = new int[N];
+		for(int v = 0; v < N; v++)
+		{
+			label[v] = v + 1;
+		}
+		shuffle(label, random);
+		int[][] board = new int[N][N];
+		for(int i = 0; i < N; i++)
+		{
+			for(int j = 0; j < N; j++)
+			{
+				board[i][j] = label[(q * (i % p) + i / p + j) % N];
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * @return a permutation of 0..groups*size-1 that keeps each group of <tt>size</tt>
+	 * consecutive indices together, with the groups and the indices within each group shuffled
+	 */
+	private static int[] shuffledGroups(int groups, int size, SplittableRandom random)
+	{
+		int[] order = new int[groups];
+		for(int g = 0; g < groups; g++)
+		{
+			order[g] = g;
+		}
+		shuffle(order, random);
+		int[] within = new int[size];
+		int[] permutation = new int[groups * size];
+		for(int g = 0; g < groups; g++)
+		{
+			for(int k = 0; k < size; k++)
+			{
+				within[k] = k;
+			}
+			shuffle(within, random);
+			for(int k = 0; k < size; k++)
+			{
+				permutation[g * size + k] = order[g] * size + within[k];
+			}
+		}
+		return permutation;
+	}
+
+	private static void shuffle(int[] values, SplittableRandom random)
+	{
+		for(int i = values.length - 1; i > 0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			int tmp = values[i];
+			values[i] = values[j];
+			values[j] = tmp;
+		}
+	}
+
+	private static boolean checkConstraints(int row, int col, int value, SudokuFile sf, int[][] board)
+	{
+		if(checkRow(row, value, sf.getN(), board) 
+				&& checkColumn(col, value, sf.getN(), board) 
+				&& checkBox(row, col, value, sf.getP(), sf.getQ(), board))
+		{
+			return true;
+		}
+		
+		return false; 
+	}
+
+	public static boolean checkRow(int row, int value, int N, int[][] board)
+	{
+		for(int i = 0; i < N; i++)
+		{
+			if(board[row][i] == value)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static boolean checkColumn(int column, int value, int N, int[][] board)
+	{
+		for (int i = 0; i < N; i++)
+		{
+			if(board[i][column] == value)
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public static boolean checkBox(int row, int column, int value, int p, int q, int[][] board)
+	{
+		int rDiv = row/p;
+		int cDiv = column/q;
+		for(int i = rDiv * p; i < (rDiv + 1) * p; i++)
+		{
+			for(int j = cDiv * q; j < (cDiv + 1) * q; j++)
+			{
+				try{
+				if(board[i][j] == value)
+				{
+					return false;
+				}
+				}catch(ArrayIndexOutOfBoundsException e)
+				{
+					System.out.println(p + " "+ q);
+				}
+			}
+		}
+		return true;
+	}
+}
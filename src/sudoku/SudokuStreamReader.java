@@ -0,0 +1,406 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads any number of puzzles from one file, one at a time, so arbitrarily
+ * large corpora are read in constant memory. Two layouts are recognised and
+ * may be mixed within a file:
+ *
+ * Header format, as read by SudokuBoardReader: a line "N p q" followed by N
+ * lines of N values. Column separators "|", separator lines of "-" and the
+ * "N: P: Q:" labels written by SudokuFile.toString() are skipped.
+ *
+ * One puzzle per line: N*N values on a single line, either run together as in
+ * the common 81 character format or separated by spaces. Blocks are p rows by
+ * q columns with p the largest divisor of N not above its square root, so
+ * 9 gives 3x3 and 12 gives 3x4.
+ *
+ * Values are in the Odometer encoding, single characters 0-9 then A-Z and
+ * decimal numbers beyond 35, with '0' or '.' for an empty cell. Values run
+ * together on one line must be single characters. Blank lines and lines
+ * starting with '#' are ignored, and lines that are not a puzzle are
+ * reported and skipped. So are header puzzles whose N is not p*q or above
+ * 1024, or that hold a value above N.
+ *
+ * Bytes are read from the channel into a buffer and parsed directly, without
+ * building Strings or running regular expressions.
+ */
+public class SudokuStreamReader implements Iterator<SudokuFile>, Closeable {
+
+	//===============================================================================
+	// Properties
+	//===============================================================================
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_N = 1024;		//largest board read from a header, to bound the board allocated for it
+	private static final int[] VALUES = new int[256];		//value of each byte, -1 if not a value
+	static
+	{
+		Arrays.fill(VALUES, -1);
+		for(int c = '0'; c <= '9'; c++)
+			VALUES[c] = c - '0';
+		for(int c = 'A'; c <= 'Z'; c++)
+			VALUES[c] = VALUES[c - 'A' + 'a'] = c - 'A' + 10;
+		VALUES['.'] = 0;
+	}
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private boolean endOfInput;
+
+	//current line and the tokens in it
+	private byte[] line = new byte[256];
+	private int lineLength;
+	private int lineNumber;
+	private int[] tokenStart = new int[64];
+	private int[] tokenEnd = new int[64];
+	private int numTokens;
+
+	private SudokuFile next;
+
+	//===============================================================================
+	// Constructors
+	//===============================================================================
+
+	/**
+	 * @param channel the puzzles to read, closed by close()
+	 */
+	public SudokuStreamReader(ReadableByteChannel channel)
+	{
+		this.channel = channel;
+		buffer.flip();
+	}
+
+	/**
+	 * Opens a file for reading.
+	 */
+	public static SudokuStreamReader open(Path path) throws IOException
+	{
+		return new SudokuStreamReader(FileChannel.open(path, StandardOpenOption.READ));
+	}
+
+	/**
+	 * Lazily reads the puzzles of a file. The file is closed when the stream is closed.
+	 */
+	public static Stream<SudokuFile> stream(Path path) throws IOException
+	{
+		final SudokuStreamReader reader = open(path);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(new Runnable() {
+					@Override
+					public void run()
+					{
+						try
+						{
+							reader.close();
+						}
+						catch(IOException e)
+						{
+							throw new UncheckedIOException(e);
+						}
+					}
+				});
+	}
+
+	//===============================================================================
+	// Iterator
+	//===============================================================================
+
+	/**
+	 * @throws UncheckedIOException if the channel cannot be read
+	 */
+	@Override
+	public boolean hasNext()
+	{
+		if(next == null)
+		{
+			try
+			{
+				next = readPuzzle();
+			}
+			catch(IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public SudokuFile next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		SudokuFile puzzle = next;
+		next = null;
+		return puzzle;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	//===============================================================================
+	// Parsing
+	//===============================================================================
+
+	/**
+	 * @return the next puzzle, null at the end of the input
+	 */
+	private SudokuFile readPuzzle() throws IOException
+	{
+		while(readLine())
+		{
+			tokenize();
+			if(numTokens == 0 || line[tokenStart[0]] == '#')
+				continue;
+
+			if(isHeader())
+			{
+				SudokuFile puzzle = readHeaderPuzzle();
+				if(puzzle != null)
+					return puzzle;
+				continue;
+			}
+
+			SudokuFile puzzle = parseSingleLine();
+			if(puzzle != null)
+				return puzzle;
+			System.err.println("Line " + lineNumber + " is not a puzzle. Skipping to the next line.");
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the current line holds three numbers, ignoring labels such as "N:"
+	 */
+	private boolean isHeader()
+	{
+		int numbers = 0;
+		for(int t = 0; t < numTokens; t++)
+		{
+			if(line[tokenEnd[t] - 1] == ':')
+				continue;
+			if(decimal(t) < 0)
+				return false;
+			numbers++;
+		}
+		return numbers == 3;
+	}
+
+	/**
+	 * @return the puzzle under the header on the current line, null if it is not a valid puzzle
+	 */
+	private SudokuFile readHeaderPuzzle() throws IOException
+	{
+		int[] params = new int[3];
+		int numParams = 0;
+		for(int t = 0; t < numTokens; t++)
+		{
+			if(line[tokenEnd[t] - 1] != ':')
+				params[numParams++] = decimal(t);
+		}
+		int N = params[0];
+		int p = params[1];
+		int q = params[2];
+		int headerLine = lineNumber;
+		if(N < 1 || N > MAX_N || p < 1 || q < 1 || p > N || q > N || p * q != N)
+		{
+			System.err.println("Line " + headerLine + " is not a valid header, N = " + N + ", p = " + p + ", q = " + q + ". Skipping to the next line.");
+			return null;
+		}
+
+		int[][] board = new int[N][N];
+		boolean valid = true;
+		int row = 0;
+		while(row < N && readLine())
+		{
+			tokenize();
+			if(numTokens == 0 || line[tokenStart[0]] == '-')
+				continue;
+			int col = 0;
+			for(int t = 0; t < numTokens && col < N; t++)
+			{
+				if(tokenEnd[t] - tokenStart[t] == 1 && line[tokenStart[t]] == '|')
+					continue;
+				int v = value(t);
+				if(v > N)
+				{
+					System.err.println("Value " + v + " at line " + lineNumber + " is larger than N = " + N + ".");
+					valid = false;
+				}
+				board[row][col++] = v;
+			}
+			row++;
+		}
+		if(!valid)
+		{
+			System.err.println("Skipping the puzzle at line " + headerLine + ".");
+			return null;
+		}
+		if(row < N)
+		{
+			System.err.println("Incomplete board for the puzzle at line " + headerLine + ". Please be advised");
+		}
+		return new SudokuFile(N, p, q, board);
+	}
+
+	/**
+	 * @return the one-line puzzle on the current line, null if the line is not one
+	 */
+	private SudokuFile parseSingleLine()
+	{
+		boolean runTogether = numTokens == 1;
+		int cells = runTogether ? tokenEnd[0] - tokenStart[0] : numTokens;
+		int N = (int)Math.round(Math.sqrt(cells));
+		if(N < 2 || N * N != cells)
+			return null;
+
+		int[][] board = new int[N][N];
+		for(int c = 0; c < cells; c++)
+		{
+			int v = runTogether ? VALUES[line[tokenStart[0] + c] & 0xFF] : parseValue(c);
+			if(v < 0 || v > N)
+				return null;
+			board[c / N][c % N] = v;
+		}
+		int p = (int)Math.sqrt(N);
+		while(N % p != 0)
+			p--;
+		return new SudokuFile(N, p, N / p, board);
+	}
+
+	/**
+	 * @return the value of token t, reporting an invalid one and reading it as 0
+	 */
+	private int value(int t)
+	{
+		int v = parseValue(t);
+		if(v >= 0)
+			return v;
+		System.err.println("Invalid value " + new String(line, tokenStart[t], tokenEnd[t] - tokenStart[t]) + " at line " + lineNumber + ". Replaced with 0");
+		return 0;
+	}
+
+	/**
+	 * @return the value of token t in the Odometer encoding, or as a decimal number if it has several digits; -1 if it is neither
+	 */
+	private int parseValue(int t)
+	{
+		return tokenEnd[t] - tokenStart[t] == 1 ? VALUES[line[tokenStart[t]] & 0xFF] : decimal(t);
+	}
+
+	/**
+	 * @return token t as a decimal number, -1 if it is not one
+	 */
+	private int decimal(int t)
+	{
+		int v = 0;
+		for(int i = tokenStart[t]; i < tokenEnd[t]; i++)
+		{
+			int digit = line[i] - '0';
+			if(digit < 0 || digit > 9 || v > (Integer.MAX_VALUE - digit) / 10)
+				return -1;
+			v = v * 10 + digit;
+		}
+		return v;
+	}
+
+	/**
+	 * Splits the current line at spaces, tabs and carriage returns.
+	 */
+	private void tokenize()
+	{
+		numTokens = 0;
+		int i = 0;
+		while(i < lineLength)
+		{
+			while(i < lineLength && isSpace(line[i]))
+				i++;
+			if(i == lineLength)
+				break;
+			if(numTokens == tokenStart.length)
+			{
+				tokenStart = Arrays.copyOf(tokenStart, numTokens * 2);
+				tokenEnd = Arrays.copyOf(tokenEnd, numTokens * 2);
+			}
+			tokenStart[numTokens] = i;
+			while(i < lineLength && !isSpace(line[i]))
+				i++;
+			tokenEnd[numTokens++] = i;
+		}
+	}
+
+	private static boolean isSpace(byte b)
+	{
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	//===============================================================================
+	// Input
+	//===============================================================================
+
+	/**
+	 * Reads the next line into <tt>line</tt>, without its line break.
+	 * @return false at the end of the input
+	 */
+	private boolean readLine() throws IOException
+	{
+		lineLength = 0;
+		boolean any = false;
+		while(true)
+		{
+			if(!buffer.hasRemaining() && !fill())
+				break;
+			any = true;
+			byte b = buffer.get();
+			if(b == '\n')
+				break;
+			if(lineLength == line.length)
+				line = Arrays.copyOf(line, lineLength * 2);
+			line[lineLength++] = b;
+		}
+		if(any)
+			lineNumber++;
+		return any;
+	}
+
+	/**
+	 * @return false if the channel has no more bytes
+	 */
+	private boolean fill() throws IOException
+	{
+		if(endOfInput)
+			return false;
+		buffer.clear();
+		int read = 0;
+		while(read == 0)
+			read = channel.read(buffer);
+		buffer.flip();
+		if(read < 0)
+		{
+			endOfInput = true;
+			return false;
+		}
+		return true;
+	}
+}